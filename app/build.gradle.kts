@@ -37,6 +37,14 @@ android {
     buildFeatures {
         compose = true
     }
+    // The long logger soak only runs when asked: ./gradlew :app:testDebugUnitTest -Pgnsdata.soakHours=4 -Pgnsdata.soakSeed=7
+    testOptions {
+        unitTests.all { test ->
+            listOf("gnsdata.soakHours", "gnsdata.soakSeed").forEach { key ->
+                project.findProperty(key)?.let { test.systemProperty(key, it) }
+            }
+        }
+    }
 }
 
 dependencies {
@@ -50,6 +58,7 @@ dependencies {
     implementation(libs.androidx.ui.tooling.preview)
     implementation(libs.androidx.material3)
     implementation(libs.androidx.appcompat)
+    implementation(project(":core"))
     testImplementation(libs.junit)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
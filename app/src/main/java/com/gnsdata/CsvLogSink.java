@@ -0,0 +1,111 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the Sink that records a session: wide sensor rows through the
+RecordingPolicy, per-SV GNSS rows and clock rows into the SheetLogger, and the running SessionStats.
+It is meant to be a FanOutBus consumer ("log"), so formatting and disk writes happen on the bus's thread and the
+capture thread only does the UI. Everything in here belongs to that thread; the exceptions are:
+    - statsText(): the stats line for the UI, rebuilt once per GNSS epoch (volatile)
+    - flush() / stats(): only once the bus has drained with the listener stopped (FanOutBus.awaitDrained / close)
+While the bus runs, a flush is requested with FanOutBus.requestFlush() instead: onFlush() then runs on this thread.
+ */
+
+public class CsvLogSink implements SensorGnssListener.Sink, FanOutBus.Flushable {
+    private final SheetLogger logger;
+    private final RecordingPolicy policy;
+    private final SessionStats stats = new SessionStats();
+    private volatile String statsText = "";
+
+    // last-known values so we can write a *wide*, fully populated row each time
+    private Float lastBaro = null;
+    private Float lastAx = null, lastAy = null, lastAz = null;
+    private Float lastGx = null, lastGy = null, lastGz = null;
+    private int lastClockFlags = 0; // receiver clock health of the current GNSS epoch (0 = healthy)
+
+    public CsvLogSink(SheetLogger logger) {
+        this.logger = logger;
+        // Rows the policy lets through go to the CSV
+        this.policy = new RecordingPolicy(logger::logSensorsWide);
+    }
+
+    // SessionStats.snapshot() as of the last epoch this consumer handled, "" before the first one
+    public String statsText() {
+        return statsText;
+    }
+
+    // Write the rows still waiting in the policy (bus drained, listener stopped: see the header)
+    public void flush() {
+        policy.flush();
+    }
+
+    // Flush marker from the bus (e.g. onPause): policy rows to the logger and the logger's buffers to disk, so a
+    // process killed after this loses nothing that was logged before the marker
+    @Override
+    public void onFlush() {
+        policy.flush();
+        logger.flush();
+    }
+
+    // The session's statistics for stats_summary.csv (same rule as flush)
+    public SessionStats stats() {
+        return stats;
+    }
+
+    @Override
+    public void onBarometer(float hPa, long tElapsedNs) {
+        lastBaro = hPa;
+        stats.onBarometer(hPa, tElapsedNs);
+        // Hand one WIDE row to the policy every time a sensor updates (sample-and-hold for others)
+        policy.onRow(RecordingPolicy.SOURCE_BARO, tElapsedNs,
+                lastBaro,
+                lastAx, lastAy, lastAz,
+                lastGx, lastGy, lastGz);
+    }
+
+    @Override
+    public void onAccel(float ax, float ay, float az, long tElapsedNs) {
+        lastAx = ax; lastAy = ay; lastAz = az;
+        stats.onAccel(ax, ay, az, tElapsedNs);
+        policy.onRow(RecordingPolicy.SOURCE_ACCEL, tElapsedNs,
+                lastBaro,
+                lastAx, lastAy, lastAz,
+                lastGx, lastGy, lastGz);
+    }
+
+    @Override
+    public void onGyro(float gx, float gy, float gz, long tElapsedNs) {
+        lastGx = gx; lastGy = gy; lastGz = gz;
+        stats.onGyro(gx, gy, gz, tElapsedNs);
+        policy.onRow(RecordingPolicy.SOURCE_GYRO, tElapsedNs,
+                lastBaro,
+                lastAx, lastAy, lastAz,
+                lastGx, lastGy, lastGz);
+    }
+
+    @Override
+    public void onGnssPrTdcp(int constellation, int svid, double prMeters, double prSmoothedMeters,
+                             Double tdcpDeltaMeters, Double tdcpRateMps, long tElapsedNs) {
+        stats.onSatellite(constellation, svid, prMeters, prSmoothedMeters, tdcpRateMps, tElapsedNs);
+        logger.logGnssPerSv(tElapsedNs, constellation, svid,
+                prMeters, prSmoothedMeters, tdcpDeltaMeters, tdcpRateMps, lastClockFlags);
+    }
+
+    @Override
+    public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS,
+                              double biasSigmaNs, double driftSigmaNsPerS,
+                              int discontinuityCount, int flags, long tElapsedNs) {
+        lastClockFlags = flags; // stamped onto this epoch's per-SV rows
+        logger.logClock(tElapsedNs, measuredBiasNs, biasNs, driftNsPerS,
+                biasSigmaNs, driftSigmaNsPerS, discontinuityCount, flags);
+    }
+
+    @Override
+    public void onGnssEpoch(String multiLineText, long tElapsedNs) {
+        stats.onEpoch();
+        statsText = stats.snapshot();
+    }
+
+    @Override
+    public void onStatus(String statusText) {}
+}
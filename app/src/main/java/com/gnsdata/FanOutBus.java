@@ -0,0 +1,429 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project fans the listener's callbacks out to several consumers (CSV, stream, solvers...)
+without making the capture thread wait on any of them. It is a Sink, so it drops in wherever a Sink goes.
+The design follows the LMAX "disruptor":
+    - ONE preallocated ring of event slots (structure of primitive arrays, power-of-two size); publishing an event is
+      a few array stores and one volatile write of the cursor, no queue nodes, no locks, nothing allocated
+    - Every consumer has its own thread and its own sequence (how far it has read); consumers never touch each other
+    - The producer may only reuse a slot once EVERY consumer is past it. If the slowest one is a whole ring behind,
+      the producer waits up to maxProducerWaitNs and then drops the event (counted), so capture never stalls for long.
+      The consumer holding it up is counted as slow (see describe())
+    - How an idle consumer waits is configurable per consumer: spin, yield, sleep or block (lock + condition)
+Consumers run on their OWN threads: anything touching Views must post to the UI thread itself. The optional
+"inline" Sink is called right on the capture thread before the event is published (that's where the UI sink goes).
+requestFlush() publishes a flush marker like any other event: a consumer whose Sink is Flushable gets onFlush() on
+its own thread once it has handled everything before the marker, so nobody has to wait for it to drain.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class FanOutBus implements SensorGnssListener.Sink {
+
+    // How a consumer waits when it has caught up (lowest latency → lowest CPU)
+    public enum WaitStrategy {
+        BUSY_SPIN,  // burns a core, lowest latency; only with spare cores
+        YIELDING,   // spins a little, then Thread.yield()
+        SLEEPING,   // spins, yields, then parks ~100 µs at a time (good default on a phone)
+        BLOCKING    // sleeps on a condition, the producer signals it (lowest CPU, adds wake-up latency)
+    }
+
+    // Knobs (public fields with defaults, tweak before the constructor)
+    public static final class Config {
+        public int ringSize = 8192;                  // rounded up to a power of two; ~40 s of 200 Hz accel+gyro
+        public long maxProducerWaitNs = 1_000_000L;  // how long capture may wait for a full ring before dropping
+        public long sleepNs = 100_000L;              // SLEEPING strategy park time
+    }
+
+    // Event kinds stored in the ring
+    private static final byte K_BARO = 1, K_ACCEL = 2, K_GYRO = 3, K_EPOCH = 4, K_STATUS = 5, K_PR = 6, K_CLOCK = 7,
+            K_FLUSH = 8;
+    private static final int F = 3, D = 5, I = 3; // floats/doubles/ints per slot
+    private static final int TDCP_PRESENT = 1, RATE_PRESENT = 2;
+    private static final int SPIN_TRIES = 100;
+
+    // A consumer Sink that also wants the flush markers (see requestFlush); called on the consumer's thread
+    public interface Flushable {
+        void onFlush();
+    }
+
+    // Sequence padded on the right so two consumers' counters don't share a cache line
+    @SuppressWarnings("unused")
+    private static final class Sequence extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+        long p1, p2, p3, p4, p5, p6, p7;
+        Sequence(long v) { super(v); }
+    }
+
+    private final class Consumer implements Runnable {
+        final String name;
+        final SensorGnssListener.Sink sink;
+        final WaitStrategy wait;
+        final Sequence seq = new Sequence(-1); // last event this consumer finished
+        Thread thread;
+        long maxLag;                           // written by the consumer only
+        final AtomicLong stalls = new AtomicLong(); // times the producer found this consumer a full ring behind
+
+        Consumer(String name, SensorGnssListener.Sink sink, WaitStrategy wait) {
+            this.name = name;
+            this.sink = sink;
+            this.wait = wait;
+        }
+
+        @Override
+        public void run() {
+            long next = seq.get() + 1;
+            while (true) {
+                long available = waitFor(next);
+                if (available < next) {
+                    if (!running) return; // closed and drained
+                    continue;
+                }
+                long lag = available - next + 1;
+                if (lag > maxLag) maxLag = lag;
+                for (long s = next; s <= available; s++) dispatch(sink, (int) (s & mask));
+                seq.lazySet(available); // release the slots to the producer
+                next = available + 1;
+            }
+        }
+
+        private long waitFor(long next) {
+            long available;
+            int tries = 0;
+            while ((available = cursor.get()) < next) {
+                if (!running) return cursor.get();
+                switch (wait) {
+                    case BUSY_SPIN:
+                        break;
+                    case YIELDING:
+                        if (++tries > SPIN_TRIES) Thread.yield();
+                        break;
+                    case SLEEPING:
+                        if (++tries > 2 * SPIN_TRIES) LockSupport.parkNanos(cfg.sleepNs);
+                        else if (tries > SPIN_TRIES) Thread.yield();
+                        break;
+                    case BLOCKING:
+                        lock.lock();
+                        try {
+                            blockedWaiters.incrementAndGet();
+                            // Re-check under the lock: the producer signals after moving the cursor
+                            if (cursor.get() < next && running) {
+                                try { wakeUp.awaitNanos(10_000_000L); } catch (InterruptedException e) { return cursor.get(); }
+                            }
+                        } finally {
+                            blockedWaiters.decrementAndGet();
+                            lock.unlock();
+                        }
+                        break;
+                }
+            }
+            return available;
+        }
+    }
+
+    private final Config cfg;
+    private final SensorGnssListener.Sink inline; // may be null
+    private final int mask;
+
+    // The ring: one slot per event, structure of arrays
+    private final byte[] kind;
+    private final long[] time;
+    private final float[] fv;
+    private final double[] dv;
+    private final int[] iv;
+    private final String[] text;
+
+    // Producer state (capture thread only, except cursor)
+    private final Sequence cursor = new Sequence(-1); // last published event
+    private long nextSeq = 0;
+    private long cachedGate = -1;                   // min consumer sequence last time we looked
+
+    private final List<Consumer> consumers = new ArrayList<>();
+    private Consumer[] gating = new Consumer[0];
+    private volatile boolean running;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+    private final AtomicInteger blockedWaiters = new AtomicInteger();
+
+    // Written by the producer only (one writer, so ++ is safe); volatile so describe() on another thread sees them
+    private volatile long published, dropped;
+
+    public FanOutBus(Config cfg, SensorGnssListener.Sink inline) {
+        this.cfg = cfg;
+        this.inline = inline;
+        int size = Integer.highestOneBit(Math.max(2, cfg.ringSize) - 1) << 1;
+        this.mask = size - 1;
+        kind = new byte[size];
+        time = new long[size];
+        fv = new float[size * F];
+        dv = new double[size * D];
+        iv = new int[size * I];
+        text = new String[size];
+    }
+
+    public FanOutBus(SensorGnssListener.Sink inline) { this(new Config(), inline); }
+
+    // Register consumers BEFORE start(); each gets a daemon thread "GNSData-Bus-<name>"
+    public synchronized FanOutBus addConsumer(String name, SensorGnssListener.Sink sink, WaitStrategy wait) {
+        if (running) throw new IllegalStateException("addConsumer() after start()");
+        consumers.add(new Consumer(name, sink, wait));
+        return this;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        gating = consumers.toArray(new Consumer[0]);
+        for (Consumer c : gating) {
+            c.thread = new Thread(c, "GNSData-Bus-" + c.name);
+            c.thread.setDaemon(true);
+            c.thread.start();
+        }
+    }
+
+    /*
+        Wait until every consumer has handled everything published so far (up to timeoutMs per consumer).
+        Returns true if they all caught up: whatever the consumers wrote is then visible to the caller, so with
+        the producer quiet (listener stopped) the caller may touch consumer-owned state, e.g. flush it.
+     */
+    public boolean awaitDrained(long timeoutMs) {
+        Consumer[] cs;
+        synchronized (this) { cs = gating; }
+        long end = cursor.get();
+        boolean drained = true;
+        for (Consumer c : cs) {
+            long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+            while (c.seq.get() < end && System.nanoTime() < deadline) LockSupport.parkNanos(1_000_000L);
+            drained &= c.seq.get() >= end;
+        }
+        return drained;
+    }
+
+    // Stop after every consumer has drained what was published (waits up to timeoutMs per consumer)
+    public synchronized void close(long timeoutMs) {
+        if (!running) return;
+        awaitDrained(timeoutMs);
+        running = false;
+        signalBlocked();
+        for (Consumer c : gating) {
+            try { c.thread.join(timeoutMs); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+    }
+
+    public void close() { close(1000); }
+
+    public int ringSize() { return mask + 1; }
+    public long publishedEvents() { return published; }
+    public long droppedEvents() { return dropped; }
+
+    // One line per consumer: how far behind it is now, the worst batch it ever had to catch up on, and how often it stalled capture
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        long head = cursor.get();
+        for (Consumer c : gating) {
+            sb.append(c.name).append(" lag=").append(head - c.seq.get())
+              .append(" maxLag=").append(c.maxLag)
+              .append(" stalls=").append(c.stalls.get()).append('\n');
+        }
+        sb.append("published=").append(published).append(" dropped=").append(dropped);
+        return sb.toString();
+    }
+
+    /*
+        Publish a flush marker (producer side: call it on the capture thread, e.g. in onPause after the listener
+        stopped). Every Flushable consumer gets onFlush() after the events published before it; returns right away.
+        False if the marker was dropped (not started, or a consumer stayed a full ring behind, see claim()).
+     */
+    public boolean requestFlush() {
+        long s = claim();
+        if (s < 0) return false;
+        int i = (int) (s & mask);
+        kind[i] = K_FLUSH; time[i] = 0;
+        publish(s);
+        return true;
+    }
+
+    // SINK (producer side, capture thread)
+
+    @Override
+    public void onBarometer(float hPa, long tElapsedNs) {
+        if (inline != null) inline.onBarometer(hPa, tElapsedNs);
+        long s = claim();
+        if (s < 0) return;
+        int i = (int) (s & mask);
+        kind[i] = K_BARO; time[i] = tElapsedNs; fv[i * F] = hPa;
+        publish(s);
+    }
+
+    @Override
+    public void onAccel(float ax, float ay, float az, long tElapsedNs) {
+        if (inline != null) inline.onAccel(ax, ay, az, tElapsedNs);
+        vec3(K_ACCEL, ax, ay, az, tElapsedNs);
+    }
+
+    @Override
+    public void onGyro(float gx, float gy, float gz, long tElapsedNs) {
+        if (inline != null) inline.onGyro(gx, gy, gz, tElapsedNs);
+        vec3(K_GYRO, gx, gy, gz, tElapsedNs);
+    }
+
+    @Override
+    public void onGnssEpoch(String multiLineText, long tElapsedNs) {
+        if (inline != null) inline.onGnssEpoch(multiLineText, tElapsedNs);
+        long s = claim();
+        if (s < 0) return;
+        int i = (int) (s & mask);
+        kind[i] = K_EPOCH; time[i] = tElapsedNs; text[i] = multiLineText;
+        publish(s);
+    }
+
+    @Override
+    public void onStatus(String statusText) {
+        if (inline != null) inline.onStatus(statusText);
+        long s = claim();
+        if (s < 0) return;
+        int i = (int) (s & mask);
+        kind[i] = K_STATUS; time[i] = 0; text[i] = statusText;
+        publish(s);
+    }
+
+    @Override
+    public void onGnssPrTdcp(int constellation, int svid, double prMeters, double prSmoothedMeters,
+                             Double tdcpDeltaMeters, Double tdcpRateMps, long tElapsedNs) {
+        if (inline != null) {
+            inline.onGnssPrTdcp(constellation, svid, prMeters, prSmoothedMeters, tdcpDeltaMeters, tdcpRateMps, tElapsedNs);
+        }
+        long s = claim();
+        if (s < 0) return;
+        int i = (int) (s & mask);
+        kind[i] = K_PR; time[i] = tElapsedNs;
+        int d = i * D, n = i * I;
+        dv[d] = prMeters;
+        dv[d + 1] = prSmoothedMeters;
+        dv[d + 2] = (tdcpDeltaMeters != null) ? tdcpDeltaMeters : 0.0;
+        dv[d + 3] = (tdcpRateMps != null) ? tdcpRateMps : 0.0;
+        iv[n] = constellation;
+        iv[n + 1] = svid;
+        iv[n + 2] = ((tdcpDeltaMeters != null) ? TDCP_PRESENT : 0) | ((tdcpRateMps != null) ? RATE_PRESENT : 0);
+        publish(s);
+    }
+
+    @Override
+    public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS,
+                              double biasSigmaNs, double driftSigmaNsPerS,
+                              int discontinuityCount, int flags, long tElapsedNs) {
+        if (inline != null) {
+            inline.onClockHealth(measuredBiasNs, biasNs, driftNsPerS, biasSigmaNs, driftSigmaNsPerS,
+                    discontinuityCount, flags, tElapsedNs);
+        }
+        long s = claim();
+        if (s < 0) return;
+        int i = (int) (s & mask);
+        kind[i] = K_CLOCK; time[i] = tElapsedNs;
+        int d = i * D, n = i * I;
+        dv[d] = measuredBiasNs;
+        dv[d + 1] = biasNs;
+        dv[d + 2] = driftNsPerS;
+        dv[d + 3] = biasSigmaNs;
+        dv[d + 4] = driftSigmaNsPerS;
+        iv[n] = discontinuityCount;
+        iv[n + 1] = flags;
+        publish(s);
+    }
+
+    private void vec3(byte k, float x, float y, float z, long t) {
+        long s = claim();
+        if (s < 0) return;
+        int i = (int) (s & mask);
+        kind[i] = k; time[i] = t;
+        int f = i * F;
+        fv[f] = x; fv[f + 1] = y; fv[f + 2] = z;
+        publish(s);
+    }
+
+    // RING (producer)
+
+    // Next free sequence, or -1 if the event has to be dropped (not started, or a consumer stayed a full ring behind)
+    private long claim() {
+        if (!running) return -1;
+        long s = nextSeq;
+        long wrap = s - (mask + 1); // the slot we'd overwrite held this sequence
+        if (wrap > cachedGate) {
+            cachedGate = minConsumerSeq();
+            if (wrap > cachedGate) {
+                Consumer slowest = slowestConsumer();
+                if (slowest != null) slowest.stalls.incrementAndGet();
+                long deadline = System.nanoTime() + cfg.maxProducerWaitNs;
+                while (wrap > (cachedGate = minConsumerSeq())) {
+                    if (System.nanoTime() >= deadline) {
+                        dropped++;
+                        return -1;
+                    }
+                    LockSupport.parkNanos(1_000L);
+                }
+            }
+        }
+        nextSeq = s + 1;
+        return s;
+    }
+
+    private void publish(long s) {
+        cursor.set(s); // volatile: makes the slot visible, and orders it before reading blockedWaiters below
+        published++;
+        if (blockedWaiters.get() > 0) signalBlocked();
+    }
+
+    private void signalBlocked() {
+        lock.lock();
+        try { wakeUp.signalAll(); } finally { lock.unlock(); }
+    }
+
+    private long minConsumerSeq() {
+        long min = cursor.get();
+        for (Consumer c : gating) min = Math.min(min, c.seq.get());
+        return min;
+    }
+
+    private Consumer slowestConsumer() {
+        Consumer slowest = null;
+        for (Consumer c : gating) if (slowest == null || c.seq.get() < slowest.seq.get()) slowest = c;
+        return slowest;
+    }
+
+    // RING (consumer): hand slot i to the consumer's sink
+    private void dispatch(SensorGnssListener.Sink sink, int i) {
+        long t = time[i];
+        int f = i * F, d = i * D, n = i * I;
+        switch (kind[i]) {
+            case K_BARO:   sink.onBarometer(fv[f], t); break;
+            case K_ACCEL:  sink.onAccel(fv[f], fv[f + 1], fv[f + 2], t); break;
+            case K_GYRO:   sink.onGyro(fv[f], fv[f + 1], fv[f + 2], t); break;
+            case K_EPOCH:  sink.onGnssEpoch(text[i], t); break;
+            case K_STATUS: sink.onStatus(text[i]); break;
+            case K_PR: {
+                int present = iv[n + 2];
+                sink.onGnssPrTdcp(iv[n], iv[n + 1], dv[d], dv[d + 1],
+                        (present & TDCP_PRESENT) != 0 ? Double.valueOf(dv[d + 2]) : null,
+                        (present & RATE_PRESENT) != 0 ? Double.valueOf(dv[d + 3]) : null, t);
+                break;
+            }
+            case K_CLOCK:
+                sink.onClockHealth(dv[d], dv[d + 1], dv[d + 2], dv[d + 3], dv[d + 4], iv[n], iv[n + 1], t);
+                break;
+            case K_FLUSH:
+                if (sink instanceof Flushable) ((Flushable) sink).onFlush();
+                break;
+            default:
+                break;
+        }
+    }
+}
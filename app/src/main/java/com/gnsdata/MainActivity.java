@@ -67,8 +67,13 @@ Java concepts - for new programmer:
  */
 import android.Manifest;
 import android.content.pm.PackageManager;
+import android.hardware.SensorManager;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import android.widget.Button;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
@@ -78,9 +83,16 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
 import androidx.core.content.FileProvider;
+import android.content.Context;
 import android.content.Intent;
 import android.net.Uri;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 
@@ -92,16 +104,33 @@ public class MainActivity extends AppCompatActivity {
 
     // UI references TextView and implements "fields" so all methods in this class can access/update them
     private TextView tvBaro, tvAccel, tvGyro, tvGnss, tvStatus;
+    private Button btnExport;
 
     //Our listener created from SensorGnssListener.java
     private SensorGnssListener listener;
     // Our logger created from SheetLogger.java
     private SheetLogger sheetLogger;
-
-    // last-known values so we can write a *wide*, fully populated row each time
-    private Float lastBaro = null;
-    private Float lastAx = null, lastAy = null, lastAz = null;
-    private Float lastGx = null, lastGy = null, lastGz = null;
+    // Records the session on its own bus consumer: RecordingPolicy → CSV rows, GNSS/clock rows, SessionStats
+    private CsvLogSink logSink;
+    // Streams binary frames to live consumers on a local TCP port (debug builds only, null otherwise)
+    private FrameStreamServer streamServer;
+    // Fans the listener's callbacks out to consumer threads (log, nav, stream) while the UI sink stays on the capture thread
+    private FanOutBus bus;
+    private long busDropsShown; // FanOutBus.droppedEvents() at the last report
+    // Integrates the IMU between GNSS epochs for high-rate position/attitude (created once we know the accel type)
+    private NavSink nav;
+    // Elapsed-realtime → UTC / GPS time for the whole app; callbacks only carry elapsed ns, the logger derives the rest
+    private final TimeBase timeBase = new TimeBase();
+    // Re-reads the system clock every TimeBase.RECALIBRATE_NS on the main thread (never on the capture threads)
+    private final Handler timeHandler = new Handler(Looper.getMainLooper());
+    // (the same tick reports the bus's consumers, so a slow one shows up while recording)
+    private final Runnable recalibrateTime = new Runnable() {
+        @Override public void run() {
+            calibrateTimeBase();
+            reportBus();
+            timeHandler.postDelayed(this, TimeBase.RECALIBRATE_NS / 1_000_000L);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -113,66 +142,62 @@ public class MainActivity extends AppCompatActivity {
         tvGyro   = findViewById(R.id.value_gyro);
         tvGnss   = findViewById(R.id.value_gnss);
         tvStatus = findViewById(R.id.value_status);
+        btnExport = findViewById(R.id.button_export);
+        btnExport.setOnClickListener(v -> exportSession());
+
+        calibrateTimeBase(); // first system clock reading, before any row can be logged
+
+        //creating our logger: files, BOM and headers are opened on a background thread so the first frame isn't
+        //waiting on disk I/O; rows that arrive before that are held in memory and written right after the header
+        char delim = SheetLogger.defaultExcelDelimiterForLocale();
+        sheetLogger = SheetLogger.openAsync(getApplicationContext(), delim, true /*BOM*/, logger -> {
+            final String paths = String.format("Sensors: %s\nGNSS: %s", logger.sensorsPath(), logger.gnssPath());
+            Log.i(TAG, paths);
+            runOnUiThread(() -> {
+                if (tvStatus.getText().length() == 0) tvStatus.setText(paths); // don't hide a permission/GNSS message
+            });
+        });
+        sheetLogger.setTimeBase(timeBase); // Date/Time/GpsTimeNs cells come from here
+        logSink = new CsvLogSink(sheetLogger);
 
-        // Create our listener and implement the Sink inline.
+        // Implement the Sink inline: UI text only, everything else happens on the bus consumers below.
         // This is an “anonymous class” — a common Java pattern where we implement an interface on the fly.
-        listener = new SensorGnssListener(getApplicationContext(), new SensorGnssListener.Sink() {
+        SensorGnssListener.Sink uiSink = new SensorGnssListener.Sink() {
             @Override
             public void onBarometer(float hPa, long tElapsedNs) {
                 tvBaro.setText(String.format(Locale.US, "%.2f hPa", hPa));
-                lastBaro = hPa;
-
-                long now = System.currentTimeMillis();
-                if (sheetLogger != null) {
-                    // Write one WIDE row every time a sensor updates (sample-and-hold for others)
-                    sheetLogger.logSensorsWide(now, tElapsedNs,
-                            lastBaro,
-                            lastAx, lastAy, lastAz,
-                            lastGx, lastGy, lastGz);
-                }
             }
 
             @Override
             public void onAccel(float ax, float ay, float az, long tElapsedNs) {
                 tvAccel.setText(String.format(Locale.US, "x=%.2f  y=%.2f  z=%.2f m/s²", ax, ay, az));
-                lastAx = ax; lastAy = ay; lastAz = az;
-
-                long now = System.currentTimeMillis();
-                if (sheetLogger != null) {
-                    sheetLogger.logSensorsWide(now, tElapsedNs,
-                            lastBaro,
-                            lastAx, lastAy, lastAz,
-                            lastGx, lastGy, lastGz);
-                }
             }
 
             @Override
             public void onGyro(float gx, float gy, float gz, long tElapsedNs) {
                 tvGyro.setText(String.format(Locale.US, "x=%.3f  y=%.3f  z=%.3f rad/s", gx, gy, gz));
-                lastGx = gx; lastGy = gy; lastGz = gz;
-
-                long now = System.currentTimeMillis();
-                if (sheetLogger != null) {
-                    sheetLogger.logSensorsWide(now, tElapsedNs,
-                            lastBaro,
-                            lastAx, lastAy, lastAz,
-                            lastGx, lastGy, lastGz);
-                }
             }
 
             @Override
-            public void onGnssPrTdcp(int constellation, int svid, double prMeters,
+            public void onGnssPrTdcp(int constellation, int svid, double prMeters, double prSmoothedMeters,
                                      Double tdcpDeltaMeters, Double tdcpRateMps, long tElapsedNs) {
-                long now = System.currentTimeMillis();
-                if (sheetLogger != null) {
-                    sheetLogger.logGnssPerSv(now, tElapsedNs, constellation, svid,
-                            prMeters, tdcpDeltaMeters, tdcpRateMps);
-                }
+                // logged per-SV by the log consumer
+            }
+
+            @Override
+            public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS,
+                                      double biasSigmaNs, double driftSigmaNsPerS,
+                                      int discontinuityCount, int flags, long tElapsedNs) {
+                // logged by the log consumer
             }
 
             @Override
             public void onGnssEpoch(String multiLineText, long tElapsedNs) {
-                tvGnss.setText(multiLineText); // UI only; logging is per-SV above
+                // The log/nav consumers close the same epoch on their own threads: their lines may still be
+                // the previous epoch's
+                if (nav != null && !nav.epochText().isEmpty()) multiLineText += "\n" + nav.epochText();
+                if (!logSink.statsText().isEmpty()) multiLineText += "\n" + logSink.statsText();
+                tvGnss.setText(multiLineText); // UI only
             }
 
             @Override
@@ -181,18 +206,48 @@ public class MainActivity extends AppCompatActivity {
             }
 
 
-        });
+        };
+
+        // Live stream on an ephemeral loopback port, opt-in (R.bool.live_stream: debug builds only). Any app on the
+        // phone can reach loopback, so a client has to send this session's token first; port and token go to logcat.
+        // The bind runs on the server's own thread, not here
+        if (getResources().getBoolean(R.bool.live_stream)) {
+            streamServer = new FrameStreamServer(FrameStreamServer.EPHEMERAL_PORT, FrameStreamServer.DEFAULT_QUEUE_FRAMES,
+                    FrameStreamServer.newToken(), server -> {
+                        int port = server.port();
+                        if (port < 0) Log.w(TAG, "Live stream disabled", server.bindError()); // the app works fine without it
+                        else Log.i(TAG, String.format(Locale.US, "Live stream: adb forward tcp:%1$d tcp:%1$d, then send token %2$s",
+                                port, server.token()));
+                    });
+        }
+        // The UI sink runs inline on the capture thread; CSV logging, the strapdown and frame encoding + publishing
+        // each run on their own bus consumer thread
+        bus = new FanOutBus(uiSink);
+        bus.addConsumer("log", logSink, FanOutBus.WaitStrategy.SLEEPING);
+        if (streamServer != null) {
+            bus.addConsumer("stream", new NetworkSink(streamServer), FanOutBus.WaitStrategy.SLEEPING);
+        }
+        SensorGnssListener.Sink sink = bus;
+
+        // Create our listener
+        listener = new SensorGnssListener(getApplicationContext(), sink);
+        // The policy keeps steady periods small, so we can afford a faster rate than NORMAL
+        listener.setSensorDelay(SensorManager.SENSOR_DELAY_GAME);
+        // Trusted GNSS epochs sharpen the time base (GPS time is µs-accurate, the system clock only ms)
+        listener.setTimeBase(timeBase);
+
+        // Strapdown IMU between GNSS epochs on its own bus consumer: the integration and the NAV frame per accel
+        // sample stay off the capture thread (the listener has to exist first: it knows which accelerometer we got)
+        nav = new NavSink(listener.accelIncludesGravity(), streamServer);
+        bus.addConsumer("nav", nav, FanOutBus.WaitStrategy.SLEEPING);
+        bus.start();
+
         //First-run helpful text based on hardware availability (emulators often lack sensors)
         tvBaro.setText(listener.hasBarometer()    ? getString(R.string.waiting_sensor) : getString(R.string.no_baro));
         tvAccel.setText(listener.hasAccelerometer()? getString(R.string.waiting_sensor) : "No accelerometer.");
         tvGyro.setText(listener.hasGyroscope()    ? getString(R.string.waiting_sensor) : "No gyroscope.");
         tvGnss.setText(getString(R.string.gnss_waiting));
 
-        //creating our logger and headers to write to
-        char delim = SheetLogger.defaultExcelDelimiterForLocale();
-        sheetLogger = SheetLogger.atExternal(getApplicationContext(), delim, true /*BOM*/);
-        tvStatus.setText(String.format("Sensors: %s\nGNSS: %s", sheetLogger.sensorsPath(), sheetLogger.gnssPath()));
-        sheetLogger.ensureHeaders(); // <- safe no-op if already present
         // Kick off runtime permission flow for GNSS
         ensureLocationPermission();
     }
@@ -202,18 +257,136 @@ public class MainActivity extends AppCompatActivity {
     @Override protected void onResume() {
         super.onResume();
         listener.start();
+        timeHandler.post(recalibrateTime);
     }
 
     // onPause stops listening for sensors
     @Override protected void onPause() {
         super.onPause();
         if (listener != null) listener.stop();
+        timeHandler.removeCallbacks(recalibrateTime);
+        // The process may be killed any time after onPause: get the rows waiting in the policy onto disk.
+        // The policy belongs to the log consumer, so ask it through the bus: it flushes on its own thread once it
+        // reaches the marker (after every row logged before the pause). Nothing waits here on the UI thread
+        if (bus != null && !bus.requestFlush()) {
+            Log.w(TAG, "Flush request dropped (log consumer a full ring behind), policy rows flushed at close\n"
+                    + bus.describe());
+        }
+    }
+
+    // EXPORT
+
+    /*
+        Pack what has been logged so far into files/exports/session-<time>.tar and open the share sheet.
+        The snapshot (flush + file lengths) takes the logger's lock for a moment; the copy itself runs on its own
+        thread, so the capture threads keep logging while it runs (rows after the snapshot aren't in this export).
+     */
+    private void exportSession() {
+        final SheetLogger logger = sheetLogger;
+        if (logger == null) return;
+        btnExport.setEnabled(false); // one export at a time
+        tvStatus.setText(getString(R.string.export_running));
+        final String folder = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date());
+        // The thread only holds the application context and a weak reference to this Activity, so it doesn't keep
+        // the Activity alive past onDestroy/rotation
+        final Context app = getApplicationContext();
+        final WeakReference<MainActivity> activity = new WeakReference<>(this);
+        Thread t = new Thread(() -> {
+            String status;
+            Uri uri = null;
+            try {
+                File exportsDir = new File(app.getExternalFilesDir(null), "exports"); // hits the disk, so not on the UI thread
+                List<SessionExporter.Entry> entries = logger.snapshot(folder);
+                if (entries.isEmpty()) {
+                    status = app.getString(R.string.export_nothing);
+                } else {
+                    deleteOldExports(exportsDir); // each archive is a full copy of the logs: keep only the newest
+                    SessionExporter.Result r = SessionExporter.writeTar(entries,
+                            new File(exportsDir, folder + SessionExporter.EXTENSION), System.currentTimeMillis());
+                    Log.i(TAG, r.describe());
+                    status = r.describe();
+                    uri = FileProvider.getUriForFile(app, app.getPackageName() + ".fileprovider", r.archive);
+                }
+            } catch (IOException | IllegalArgumentException e) {
+                Log.w(TAG, "Export failed", e);
+                status = app.getString(R.string.export_failed, e.getMessage());
+            }
+            final String shown = status;
+            final Uri shared = uri;
+            final MainActivity a = activity.get();
+            if (a == null || a.isDestroyed()) return; // nobody left to show it to (the next export cleans up the archive)
+            a.runOnUiThread(() -> {
+                if (a.isDestroyed()) return; // destroyed while this was queued
+                a.btnExport.setEnabled(true);
+                a.tvStatus.setText(shown);
+                if (shared != null) a.share(shared);
+            });
+        }, "GNSData-Export");
+        t.setDaemon(true);
+        t.start();
     }
+
+    // Earlier archives (and any .part an interrupted export left behind). The share sheet has finished with them
+    // by the time the user taps export again
+    private static void deleteOldExports(File exportsDir) {
+        File[] old = exportsDir.listFiles((dir, name) ->
+                name.endsWith(SessionExporter.EXTENSION) || name.endsWith(SessionExporter.EXTENSION + ".part"));
+        if (old == null) return;
+        for (File f : old) {
+            if (!f.delete()) Log.w(TAG, "Could not delete old export " + f.getName());
+        }
+    }
+
+    // Standard share sheet with read access to the archive for whichever app is picked
+    private void share(Uri archive) {
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType(SessionExporter.MIME_TYPE);
+        send.putExtra(Intent.EXTRA_STREAM, archive);
+        send.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        startActivity(Intent.createChooser(send, getString(R.string.export_session)));
+    }
+
+    // One system clock reading, bracketed by elapsed-realtime reads so the TimeBase knows when it was taken
+    private void calibrateTimeBase() {
+        long before = SystemClock.elapsedRealtimeNanos();
+        long wallMs = System.currentTimeMillis();
+        long after = SystemClock.elapsedRealtimeNanos();
+        timeBase.calibrateFromSystem(before, wallMs, after);
+    }
+
+    // Consumer lag / drops to logcat every tick; drops also go on the status line (a consumer can't keep up)
+    private void reportBus() {
+        if (bus == null) return;
+        String state = bus.describe();
+        Log.i(TAG, "Bus: " + state.replace('\n', ' '));
+        long dropped = bus.droppedEvents();
+        if (dropped > busDropsShown) {
+            busDropsShown = dropped;
+            tvStatus.setText(getString(R.string.bus_dropping, state));
+        }
+    }
+
     // Close the logger
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (sheetLogger != null) sheetLogger.close();
+        // Draining the bus and the disk writes happen on the logger's I/O thread, not here. That thread also opens
+        // the next Activity's logger (rotation), which then finds the stats summary written below
+        final FanOutBus b = bus;
+        final CsvLogSink sink = logSink;
+        final SheetLogger logger = sheetLogger;
+        final FrameStreamServer server = streamServer;
+        SheetLogger.runOnIoThread(() -> {
+            // Consumers drain first, so the log consumer has handled every event before its state is touched here
+            // and the stream consumer is done before the server goes away
+            if (b != null) b.close();
+            if (sink != null) sink.flush(); // write the rows still waiting in the policy
+            if (logger != null) {
+                if (sink != null) logger.writeStatsSummary(sink.stats()); // merged onto the earlier runs in the logs
+                logger.close();
+            }
+            if (server != null) server.close();
+        });
     }
 
     // This permission helper requests at runtime on Android 6+ if need to get permissions
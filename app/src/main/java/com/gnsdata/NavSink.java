@@ -0,0 +1,57 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the Sink that runs the strapdown propagator. It is meant to be a FanOutBus
+consumer ("nav"), so the IMU integration and the NAV frame per accelerometer sample (encoded and published to live
+consumers) happen on the bus's thread instead of the capture thread.
+The UI reads the last epoch's IMU displacement through epochText(), which is written once per GNSS epoch.
+ */
+
+import java.util.Locale;
+
+public class NavSink implements SensorGnssListener.Sink {
+    private final StrapdownPropagator strapdown;
+    private volatile String epochText = ""; // written on the bus thread, read on the UI thread
+
+    // server may be null: then only the propagator runs (no NAV frames)
+    public NavSink(boolean accelIncludesGravity, FrameStreamServer server) {
+        this.strapdown = new StrapdownPropagator(accelIncludesGravity,
+                (server == null) ? null : (t, px, py, pz, vx, vy, vz, qw, qx, qy, qz) ->
+                        server.publish(FrameCodec.nav(t, px, py, pz, vx, vy, vz, qw, qx, qy, qz)));
+    }
+
+    // "IMU since last epoch: ..." for the GNSS text, or "" before the first epoch
+    public String epochText() {
+        return epochText;
+    }
+
+    @Override
+    public void onAccel(float ax, float ay, float az, long tElapsedNs) {
+        strapdown.onAccel(ax, ay, az, tElapsedNs); // emits one nav sample
+    }
+
+    @Override
+    public void onGyro(float gx, float gy, float gz, long tElapsedNs) {
+        strapdown.onGyro(gx, gy, gz, tElapsedNs);
+    }
+
+    @Override
+    public void onGnssEpoch(String multiLineText, long tElapsedNs) {
+        strapdown.onGnssEpoch(tElapsedNs); // re-base the IMU position (and rein in the velocity) on this epoch
+        epochText = String.format(Locale.US, "IMU since last epoch: %.2f, %.2f, %.2f m  yaw %.1f°  ZUPT %d",
+                strapdown.epochDx(), strapdown.epochDy(), strapdown.epochDz(), strapdown.yawDeg(),
+                strapdown.zeroVelocityUpdates());
+    }
+
+    // Nothing else feeds the propagator
+    @Override public void onBarometer(float hPa, long tElapsedNs) {}
+    @Override public void onStatus(String statusText) {}
+    @Override
+    public void onGnssPrTdcp(int constellation, int svid, double prMeters, double prSmoothedMeters,
+                             Double tdcpDeltaMeters, Double tdcpRateMps, long tElapsedNs) {}
+    @Override
+    public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS,
+                              double biasSigmaNs, double driftSigmaNsPerS,
+                              int discontinuityCount, int flags, long tElapsedNs) {}
+}
@@ -0,0 +1,56 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is a Sink that streams everything the listener produces to live consumers
+over a local TCP port (binary frames, see FrameCodec). It is meant to be a FanOutBus consumer ("stream"), so the
+encoding happens on the bus's thread; the UI and CSV sinks get their callbacks from the bus, not from here.
+Per-satellite rows are held until onGnssEpoch so each epoch goes out as one frame.
+ */
+
+public class NetworkSink implements SensorGnssListener.Sink {
+    private final FrameStreamServer server;
+    private final FrameCodec.EpochBatch epoch = new FrameCodec.EpochBatch();
+
+    public NetworkSink(FrameStreamServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public void onBarometer(float hPa, long tElapsedNs) {
+        server.publish(FrameCodec.baro(tElapsedNs, hPa));
+    }
+
+    @Override
+    public void onAccel(float ax, float ay, float az, long tElapsedNs) {
+        server.publish(FrameCodec.vec3(FrameCodec.TYPE_ACCEL, tElapsedNs, ax, ay, az));
+    }
+
+    @Override
+    public void onGyro(float gx, float gy, float gz, long tElapsedNs) {
+        server.publish(FrameCodec.vec3(FrameCodec.TYPE_GYRO, tElapsedNs, gx, gy, gz));
+    }
+
+    @Override
+    public void onGnssPrTdcp(int constellation, int svid, double prMeters, double prSmoothedMeters,
+                             Double tdcpDeltaMeters, Double tdcpRateMps, long tElapsedNs) {
+        epoch.add(constellation, svid, prMeters, prSmoothedMeters, tdcpDeltaMeters, tdcpRateMps); // sent with the epoch below
+    }
+
+    @Override
+    public void onGnssEpoch(String multiLineText, long tElapsedNs) {
+        server.publish(epoch.drain(tElapsedNs)); // one frame for all satellites of this epoch
+    }
+
+    @Override
+    public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS,
+                              double biasSigmaNs, double driftSigmaNsPerS,
+                              int discontinuityCount, int flags, long tElapsedNs) {
+        server.publish(FrameCodec.clock(tElapsedNs, biasNs, driftNsPerS, biasSigmaNs, driftSigmaNsPerS, discontinuityCount, flags));
+    }
+
+    @Override
+    public void onStatus(String statusText) {
+        server.publish(FrameCodec.status(statusText));
+    }
+}
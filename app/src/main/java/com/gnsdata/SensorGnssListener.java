@@ -17,6 +17,7 @@ import android.hardware.SensorManager; // hooks into hardware sensors
 import android.location.GnssClock;
 import android.location.GnssMeasurementsEvent; // Raw GNSS callback (API 24+)
 import android.location.LocationManager; // System's gnss service
+import android.os.Build;
 import android.os.Bundle;
 import android.os.SystemClock; // Time for stable deltas, not used yet
 import android.util.Log;
@@ -35,9 +36,7 @@ import java.util.Map;
 public class SensorGnssListener implements SensorEventListener {
     // Constants, constrained at compiletime, immutable
     private static final String TAG = "GNSData-Listener";
-    private static final double C_MPS = 299_792_458.0; // light speed constant
-    private static final double WEEK_NS = 604800e9; // 604,800 s * e9
-    private static final double DAY_NS = 86500e9; // 86,400 s * 1e9
+    // Light speed, week and day windows now live in GnssRanging (shared with the batch tools)
 
     // Android services to handle hubs mentioned in MainActivity
     private final Context appContext; // keep an application Context that's safe beyond Activity
@@ -58,6 +57,12 @@ public class SensorGnssListener implements SensorEventListener {
     private final Map<Integer, Double> lastAdrMeters = new HashMap<>();
     private final Map<Integer, Long> lastAdrEpochNs = new HashMap<>();
 
+    // Bias/drift filter over GnssClock; flags bad epochs and tells us when the ADR history is void
+    private final ReceiverClockTracker clockTracker = new ReceiverClockTracker();
+
+    // Carrier-smoothed pseudorange per signal (constellation + svid + band), window in epochs
+    private final HatchFilter hatch = new HatchFilter(HatchFilter.DEFAULT_WINDOW);
+
     // "Sink" is our output callback to the Activity
     public interface Sink {
         void onBarometer(float hPa, long tElapsedNs);
@@ -66,9 +71,15 @@ public class SensorGnssListener implements SensorEventListener {
         void onGnssEpoch(String multiLineText, long tElapsedNs);
         void onStatus(String statusText);
 
-        void onGnssPrTdcp(int constellation, int svid, double prMeters,
+        void onGnssPrTdcp(int constellation, int svid, double prMeters, double prSmoothedMeters,
                           Double tdcpDeltaMeters, Double tdcpRateMps, long tElapsedNs);
         // Note: that when ADR isn't available yet, we pass null (Doubles are nullable)
+        // prSmoothedMeters is the carrier-smoothed (Hatch) pseudorange; equals prMeters right after a restart
+
+        // Receiver clock health, once per epoch BEFORE that epoch's onGnssPrTdcp calls (flags: see ReceiverClockTracker)
+        void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS,
+                           double biasSigmaNs, double driftSigmaNsPerS,
+                           int discontinuityCount, int flags, long tElapsedNs);
     }
     private final Sink sink;
 
@@ -102,19 +113,31 @@ public class SensorGnssListener implements SensorEventListener {
         this.hasGyro = (sGyro != null);
 
     }
+    // Sampling rate handed to registerListener; NORMAL unless a RecordingPolicy is there to thin the rows out
+    private int sensorDelay = SensorManager.SENSOR_DELAY_NORMAL;
+
+    // Call before start(), e.g. SensorManager.SENSOR_DELAY_GAME
+    public void setSensorDelay(int delay) { this.sensorDelay = delay; }
+
+    // Optional: every trusted epoch refines the time base with GNSS time (see refineTimeBase)
+    private volatile TimeBase timeBase;
+    public void setTimeBase(TimeBase timeBase) { this.timeBase = timeBase; }
+
     // Simple feature queries for the Activity, nice for when we first run the program
     public boolean hasBarometer() { return hasBaro; }
     public boolean hasAccelerometer() { return hasAccel; }
     public boolean hasGyroscope() { return hasGyro; }
+    // True when we fell back to TYPE_ACCELEROMETER, i.e. onAccel values still contain gravity
+    public boolean accelIncludesGravity() { return hasAccel && sAccel.getType() == Sensor.TYPE_ACCELEROMETER; }
 
     // Start listening (we call this from Activity.onResume AFTER permissions are gathered)
     @RequiresPermission(anyOf = {Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION})
     public void start(){
-        // Register sensors at a digestible rate for human eye
+        // Register sensors at the chosen rate (digestible for the human eye by default)
         if (sm != null) {
-            if (hasBaro) sm.registerListener(this, sBaro, SensorManager.SENSOR_DELAY_NORMAL);
-            if (hasAccel) sm.registerListener(this, sAccel, SensorManager.SENSOR_DELAY_NORMAL);
-            if (hasGyro) sm.registerListener(this, sGyro, SensorManager.SENSOR_DELAY_NORMAL);
+            if (hasBaro) sm.registerListener(this, sBaro, sensorDelay);
+            if (hasAccel) sm.registerListener(this, sAccel, sensorDelay);
+            if (hasGyro) sm.registerListener(this, sGyro, sensorDelay);
         }
 
         //Register GNSS raw measurements callback (guard with the permissions)
@@ -167,6 +190,22 @@ public class SensorGnssListener implements SensorEventListener {
     }
     @Override public void onAccuracyChanged(Sensor sensor, int accuracy) {/* TBD */}
 
+    /*
+        GPS time of this epoch (TimeNanos − FullBiasNanos − BiasNanos, in long ns so nothing is rounded) against the
+        elapsed-realtime instant the receiver sampled it at. That instant is only reported from API 29; the callback's
+        own elapsed time lags by the delivery latency (tens of ms, worse than the system clock), so older devices
+        stay on the system clock calibration.
+     */
+    private void refineTimeBase(GnssClock clock) {
+        TimeBase tb = timeBase;
+        if (tb == null || !clock.hasFullBiasNanos()) return;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || !clock.hasElapsedRealtimeNanos()) return;
+        long gpsNs = clock.getTimeNanos() - clock.getFullBiasNanos()
+                - (clock.hasBiasNanos() ? Math.round(clock.getBiasNanos()) : 0L);
+        int leap = clock.hasLeapSecond() ? clock.getLeapSecond() : GnssRanging.DEFAULT_LEAP_SECONDS;
+        tb.refineFromGnss(clock.getElapsedRealtimeNanos(), gpsNs, leap);
+    }
+
     //GNS raw measurement callback (computes PR + TDCP and emits a multi-line summary)
     private final GnssMeasurementsEvent.Callback measCb = new GnssMeasurementsEvent.Callback() {
         @Override
@@ -176,12 +215,35 @@ public class SensorGnssListener implements SensorEventListener {
                 final long   tRxNanos     = clock.getTimeNanos();
                 final double fullBiasNs   = clock.hasFullBiasNanos() ? clock.getFullBiasNanos() : 0.0;
                 final double biasNs       = clock.hasBiasNanos()     ? clock.getBiasNanos()     : 0.0;
-                final double tRxGpsNanos  = tRxNanos - (fullBiasNs + biasNs); // continuous GPST in ns
+                final double tRxGpsNanos  = GnssRanging.receiverGpsNanos(tRxNanos, fullBiasNs, biasNs); // continuous GPST in ns
 
                 // Build a multi-line UI string for this epoch
                 StringBuilder ui = new StringBuilder();
                 final long tElapsedNs = SystemClock.elapsedRealtimeNanos(); // monotonic for logging alignment
 
+                // Track bias + drift; a clock discontinuity voids every satellite's ADR history (no TDCP across a reset)
+                final int discCount = clock.getHardwareClockDiscontinuityCount();
+                final int clockFlags = clockTracker.update(tRxNanos,
+                        clock.hasFullBiasNanos(), clock.hasFullBiasNanos() ? clock.getFullBiasNanos() : 0L,
+                        clock.hasBiasNanos(), biasNs,
+                        clock.hasBiasUncertaintyNanos(), clock.hasBiasUncertaintyNanos() ? clock.getBiasUncertaintyNanos() : 0.0,
+                        clock.hasDriftNanosPerSecond(), clock.hasDriftNanosPerSecond() ? clock.getDriftNanosPerSecond() : 0.0,
+                        clock.hasDriftUncertaintyNanosPerSecond(),
+                        clock.hasDriftUncertaintyNanosPerSecond() ? clock.getDriftUncertaintyNanosPerSecond() : 0.0,
+                        discCount);
+                if (ReceiverClockTracker.breaksAdr(clockFlags)) {
+                    lastAdrEpochNs.clear();
+                    lastAdrMeters.clear();
+                    hatch.resetAll();
+                }
+                sink.onClockHealth(clockTracker.measuredBiasNs(), clockTracker.biasNs(), clockTracker.driftNsPerS(),
+                        clockTracker.biasSigmaNs(), clockTracker.driftSigmaNsPerS(), discCount, clockFlags, tElapsedNs);
+                if (!ReceiverClockTracker.usable(clockFlags)) {
+                    ui.append(String.format(Locale.US, "Clock flags=%d (epoch not trusted)\n", clockFlags));
+                } else {
+                    refineTimeBase(clock);
+                }
+
                 for (android.location.GnssMeasurement m : event.getMeasurements()) {
                     final int svid    = m.getSvid();
                     final int constel = m.getConstellationType();
@@ -189,57 +251,29 @@ public class SensorGnssListener implements SensorEventListener {
                     // Satellite transmit time (Tx) at code epoch in ns (will be a large number in the .csv) in the constellation’s own time scale
                     double tTxNs = m.getReceivedSvTimeNanos() + m.getTimeOffsetNanos();
 
-                    // Convert tramsit time (Tx) to GPS time scale (very important for valid pseudorange)
+                    // Convert Tx to the GPS time scale, fold into the week/day window and difference against Rx.
+                    // The math lives in GnssRanging so the batch tools reuse exactly the same code.
                     // Reference: https://web.gps.caltech.edu/classes/ge111/Docs/GPSbasics.pdf
-                        /*
-                            Tx time (t_tx) = the time the satellite transmitted the code epoch you’re measuring.
-
-                            Rx time (t_rx) = the time your receiver received that same code epoch (expressed on the GPS time scale after clock-bias correction).
-                        */
-                    // GPS/QZSS/SBAS: ~0 offset → leave as-is.
-                    // Galileo (GST): typically small ns-level offset → ignore here.
-                    // BeiDou (BDT): GPST = BDT + 14 s  → add +14 s.
-                    // GLONASS (UTC(SU) TOD): GPST = UTC + leapSeconds → add leap seconds.
-                    /* Reference: https://developer.android.com/reference/android/location/GnssStatus
-                        GPS = 1
-                        Sbas = 2
-                        Glonass = 3
-                        Qzss = 4
-                        Beidou = 5
-                        Galileo = 6
-                        IRNSS = 7
-                    */
-                    double offsetToGpsNs = 0.0;
-                    if (constel == android.location.GnssStatus.CONSTELLATION_BEIDOU) {
-                        offsetToGpsNs = 14.0e9;  // 14 seconds
-                    } else if (constel == android.location.GnssStatus.CONSTELLATION_GLONASS) {
-                        // If the hardware provides leap seconds, use it; otherwise fall back to 18 s (current).
-                        int leap = clock.hasLeapSecond() ? clock.getLeapSecond() : 18;
-                        offsetToGpsNs = leap * 1e9;
-                    }
-                    double tTxGpsNs = tTxNs + offsetToGpsNs;
-
-                    // Choose the modulo window: week for most, day for GLONASS
-                    double moduloNs = (constel == android.location.GnssStatus.CONSTELLATION_GLONASS) ? DAY_NS : WEEK_NS;
-
-                    // Fold both receiver and (re-calc'd) transmit times into the same modulo window
-                    double tRxTow = tRxGpsNanos % moduloNs; if (tRxTow < 0) tRxTow += moduloNs;
-                    double tTxTow = tTxGpsNs    % moduloNs; if (tTxTow < 0) tTxTow += moduloNs;
-
-                    // Raw difference and wrap to nearest number to handle rollover between week and day mark
-                    double dtNs = tRxTow - tTxTow;
-                    if (dtNs >  0.5 * moduloNs) dtNs -= moduloNs;
-                    if (dtNs < -0.5 * moduloNs) dtNs += moduloNs;
-
-                    // Pseudorange in meters
-                    double prMeters = dtNs * 1e-9 * C_MPS;
+                    // If the hardware provides leap seconds, use it; otherwise fall back to 18 s (current).
+                    int leap = clock.hasLeapSecond() ? clock.getLeapSecond() : GnssRanging.DEFAULT_LEAP_SECONDS;
+                    double prMeters = GnssRanging.pseudorangeMeters(tRxGpsNanos, tTxNs, constel, leap);
 
                     // Sanity gate for security, keep ~1,000–70,000 km
-                    if (prMeters < 1.0e6 || prMeters > 7.0e7) {
+                    if (!GnssRanging.isPlausible(prMeters)) {
                         // We could also sink.onStatus("Dropped PR SV " + svid + " C=" + constel + " pr=" + (long)prMeters); if the range of the PR doesn't fit beauty standards
                         continue;
                     }
 
+                    // Hatch filter: smooth the PR with the carrier, restarting on ADR loss / reset / cycle slip
+                    final int adrState = m.getAccumulatedDeltaRangeState();
+                    final boolean adrUsable = (adrState & android.location.GnssMeasurement.ADR_STATE_VALID) != 0
+                            && (adrState & (android.location.GnssMeasurement.ADR_STATE_RESET
+                                          | android.location.GnssMeasurement.ADR_STATE_CYCLE_SLIP)) == 0;
+                    final long signalKey = HatchFilter.signalKey(constel, svid,
+                            m.hasCarrierFrequencyHz() ? m.getCarrierFrequencyHz() : 0.0);
+                    final double prSmoothed = hatch.update(signalKey, prMeters, adrUsable,
+                            adrUsable ? m.getAccumulatedDeltaRangeMeters() : 0.0);
+
                     // TDCP via ADR differencing (if ADR valid) ---
                     String  tdcpTxt  = "—";
                     Double  tdcpDelta = null;
@@ -274,10 +308,10 @@ public class SensorGnssListener implements SensorEventListener {
 
                     // UI line for this SV
                     ui.append(String.format(Locale.US,
-                            "SV %d (C=%d)  PR=%.3f m  TDCP=%s\n", svid, constel, prMeters, tdcpTxt));
+                            "SV %d (C=%d)  PR=%.3f m  PRs=%.3f m  TDCP=%s\n", svid, constel, prMeters, prSmoothed, tdcpTxt));
 
                     // Structured callback for logging (per-SV)
-                    sink.onGnssPrTdcp(constel, svid, prMeters, tdcpDelta, tdcpRate, tElapsedNs);
+                    sink.onGnssPrTdcp(constel, svid, prMeters, prSmoothed, tdcpDelta, tdcpRate, tElapsedNs);
                 }
                 // This line of uiText may appear when running the app at first, give it time to load the GNSS data
                 final String uiText = (ui.length() == 0) ? "No raw GNSS this epoch" : ui.toString();
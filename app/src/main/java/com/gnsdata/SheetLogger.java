@@ -6,22 +6,34 @@ Github: https://github.com/incognitosushiroll/GNSSData.git
 
 This file within the GNSSData project will write to an android's external files directory (Files app).
 This class is one tiny thread for writing the GNSS data to a .csv file.
+Opening the files (mkdirs, opens, BOM, headers) can happen on a background thread with openAsync(); rows logged
+before the files are ready wait in memory and are written, in order, right after the header.
+Logs are appended to across runs. If an existing log's header isn't the one this version writes (columns were added
+or moved, or the delimiter changed), the old file is renamed to <name>_v1.csv (_v2, ... if taken) and a fresh one is
+started, so every file has one column layout from top to bottom.
  */
 
 import android.content.Context;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.List;
 import java.io.FileOutputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.text.DecimalFormatSymbols;
-import java.text.SimpleDateFormat;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class SheetLogger {
@@ -29,65 +41,193 @@ public class SheetLogger {
     // these are public getters (so we can show/share paths in UI)
     public File sensorsFile() { return sensorsFile; }
     public File gnssFile()    { return gnssFile;    }
-    public String sensorsPath() { return sensorsFile.getAbsolutePath(); }
-    public String gnssPath()    { return gnssFile.getAbsolutePath();    }
+    public String sensorsPath() { return sensorsFile == null ? "" : sensorsFile.getAbsolutePath(); }
+    public String gnssPath()    { return gnssFile    == null ? "" : gnssFile.getAbsolutePath();    }
+    public File clockFile()     { return clockFile; }
 
-    // internal vars
-    private final File sensorsFile;
-    private final File gnssFile;
+    // Rows we're willing to hold in memory while the files are still being opened (~1 min of sensor rows at GAME rate)
+    static final int MAX_PENDING_ROWS = 20_000;
+
+    // One background thread for every openAsync (and runOnIoThread), created on first use and kept (daemon): starting
+    // a new Thread per open cost the caller more than the open it was meant to hide. Tasks run one after another,
+    // oldest first
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "GNSData-LoggerIO");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // internal vars (files are null until openAsync has finished on its thread)
+    private volatile File sensorsFile;
+    private volatile File gnssFile;
+    private volatile File clockFile;
     private Writer sensorsWriter;
     private Writer gnssWriter;
+    private Writer clockWriter;
     private final char delimiter;
     private final boolean writeBomOnEmpty;
 
-    // Thread-safe date/time formatters (we create fresh ones per each call bc SimpleDateFormat isn’t thread-safe).
-    private static String fmtDate(long wallMs) {
-        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date(wallMs));
-    }
-    private static String fmtTime(long wallMs) {
-        return new SimpleDateFormat("HH:mm:ss.SSS", Locale.US).format(new Date(wallMs));
+    // The statistics of the earlier runs these logs already hold (null: the logs start with this run), see STATS
+    private SessionStats earlierStats;
+
+    // Rows logged before the files were open (null once they are), plus what didn't fit
+    private List<String> pendingSensors;
+    private List<String> pendingGnss;
+    private List<String> pendingClock;
+    private long droppedWhilePending;
+    private boolean closed;
+
+    // Where Date/Time/GpsTimeNs come from: rows only carry ElapsedNs, the time base turns it into wall/GPS time.
+    // Until one is set (or calibrated) those cells stay blank. The formatter caches per second, used under our lock.
+    private volatile TimeBase timeBase;
+    private final TimeBase.Formatter stamp = new TimeBase.Formatter();
+    private final long[] times = new long[2]; // {utcMs, gpsNs} of the row being written (under the lock, like stamp)
+
+    public void setTimeBase(TimeBase timeBase) { this.timeBase = timeBase; }
+
+    // Date, Time, ElapsedNs, GpsTimeNs cells of one row
+    private void timeCells(Object[] row, long elapsedNs) {
+        TimeBase tb = timeBase;
+        boolean ok = tb != null && tb.isCalibrated();
+        if (ok) tb.stamp(elapsedNs, times); // Time and GpsTimeNs from the same calibration
+        row[0] = ok ? stamp.date(times[0]) : "";
+        row[1] = ok ? stamp.time(times[0]) : "";
+        row[2] = String.valueOf(elapsedNs);
+        row[3] = ok ? String.valueOf(times[1]) : "";
     }
 
     // A Java "Factory" which put logs under app-specific *external* storage (easy to grab via Files/USB; no permission). */
     public static SheetLogger atExternal(Context ctx, char delimiter, boolean bom) {
-        File base = ctx.getExternalFilesDir(null);
-        File dir = new File(base, "logs");
+        return atDirectory(externalLogsDir(ctx), delimiter, bom);
+    }
+
+    // Same as atExternal but for any folder (desktop tests, other storage)
+    public static SheetLogger atDirectory(File dir, char delimiter, boolean bom) {
         if (!dir.exists()) dir.mkdirs();
         return new SheetLogger(
-                new File(dir, "sensors_log.csv"),
-                new File(dir, "gnss_log.csv"),
+                new File(dir, CsvFormat.SENSORS_FILE),
+                new File(dir, CsvFormat.GNSS_FILE),
+                new File(dir, CsvFormat.CLOCK_FILE),
                 delimiter, bom);
     }
 
+    // Called by openAsync once the files are open (on the I/O thread, not the UI thread)
+    public interface OnReady {
+        void onReady(SheetLogger logger);
+    }
+
+    /*
+        Startup fast path: returns right away WITHOUT touching the disk. The shared I/O thread finds the folder,
+        opens the files (BOM + headers exactly like atExternal) and then writes whatever rows were logged in
+        the meantime. onReady may be null.
+     */
+    public static SheetLogger openAsync(Context ctx, char delimiter, boolean bom, OnReady onReady) {
+        final Context app = ctx.getApplicationContext();
+        return openAsync(() -> externalLogsDir(app), delimiter, bom, onReady);
+    }
+
+    // Same, with the folder computed by dirSupplier on the background thread
+    public static SheetLogger openAsync(Callable<File> dirSupplier, char delimiter, boolean bom, OnReady onReady) {
+        final SheetLogger logger = new SheetLogger(delimiter, bom);
+        IO.execute(() -> {
+            File dir;
+            try {
+                dir = dirSupplier.call();
+            } catch (Exception e) {
+                dir = null;
+            }
+            if (dir != null && !dir.exists()) dir.mkdirs();
+            logger.finishOpen(dir); // null dir (no storage): drop the pending rows, keep behaving like a failed open
+            if (onReady != null) onReady.onReady(logger);
+        });
+        return logger;
+    }
+
+    // Run disk work (closing a logger, the stats summary) on the thread openAsync uses, so it happens after every
+    // open queued before it and before every open queued after it (a rotation's new logger sees the old one's stats)
+    public static void runOnIoThread(Runnable task) {
+        IO.execute(task);
+    }
+
+    // <app external files>/logs (getExternalFilesDir itself hits the disk, so keep it off the main thread)
+    private static File externalLogsDir(Context ctx) {
+        File base = ctx.getExternalFilesDir(null);
+        return new File(base, "logs");
+    }
+
     // Excel normally wants ';' when decimal separator is ','. So we use , or ; as delim and make it a basic "," //
     public static char defaultExcelDelimiterForLocale() {
-        char decimalSep = DecimalFormatSymbols.getInstance().getDecimalSeparator();
-        return (decimalSep == ',') ? ';' : ',';
+        return CsvFormat.defaultExcelDelimiterForLocale();
     }
 
     // Constructor which has open writers and will write headers if files empty.
-    private SheetLogger(File sensors, File gnss, char delimiter, boolean bom) {
+    private SheetLogger(File sensors, File gnss, File clock, char delimiter, boolean bom) {
         this.sensorsFile = sensors;
         this.gnssFile = gnss;
+        this.clockFile = clock;
         this.delimiter = delimiter;
         this.writeBomOnEmpty = bom;
-        this.sensorsWriter = openWriter(sensors);
-        this.gnssWriter = openWriter(gnss);
+        this.sensorsWriter = openWriter(sensors, CsvFormat.SENSORS_HEADER);
+        this.gnssWriter = openWriter(gnss, CsvFormat.GNSS_HEADER);
+        this.clockWriter = openWriter(clock, CsvFormat.CLOCK_HEADER);
         writeSensorsHeaderIfEmpty();
         writeGnssHeaderIfEmpty();
+        writeClockHeaderIfEmpty();
+        loadEarlierStats();
+    }
+
+    // Constructor for openAsync: nothing on disk yet, rows are held until finishOpen()
+    private SheetLogger(char delimiter, boolean bom) {
+        this.delimiter = delimiter;
+        this.writeBomOnEmpty = bom;
+        this.pendingSensors = new ArrayList<>();
+        this.pendingGnss = new ArrayList<>();
+        this.pendingClock = new ArrayList<>();
+    }
+
+    // Background half of openAsync: open writers (BOM), headers if empty, then the rows that waited, oldest first
+    private synchronized void finishOpen(File dir) {
+        List<String> waitingSensors = pendingSensors;
+        List<String> waitingGnss = pendingGnss;
+        List<String> waitingClock = pendingClock;
+        pendingSensors = null; // from here on rows go straight to the writers
+        pendingGnss = null;
+        pendingClock = null;
+        if (dir != null) {
+            this.sensorsFile = new File(dir, CsvFormat.SENSORS_FILE);
+            this.gnssFile = new File(dir, CsvFormat.GNSS_FILE);
+            this.clockFile = new File(dir, CsvFormat.CLOCK_FILE);
+            this.sensorsWriter = openWriter(sensorsFile, CsvFormat.SENSORS_HEADER);
+            this.gnssWriter = openWriter(gnssFile, CsvFormat.GNSS_HEADER);
+            this.clockWriter = openWriter(clockFile, CsvFormat.CLOCK_HEADER);
+            writeSensorsHeaderIfEmpty();
+            writeGnssHeaderIfEmpty();
+            writeClockHeaderIfEmpty();
+            loadEarlierStats(); // before the waiting rows: the lengths have to be the ones found at open
+            writeLines(sensorsWriter, waitingSensors);
+            writeLines(gnssWriter, waitingGnss);
+            writeLines(clockWriter, waitingClock);
+        }
+        if (closed) close(); // the Activity was already gone; write what we had and finish
     }
 
-    // Will open the parent file if it exists, or create a new parent file and then create output streams and writers
-    private Writer openWriter(File file) {
+    // How many rows were thrown away because the files took too long to open (0 in practice)
+    public synchronized long droppedWhilePending() { return droppedWhilePending; }
+
+    // Will open the parent file if it exists, or create a new parent file and then create output streams and writers.
+    // A log written with another header is moved aside first (see the top of the file)
+    private Writer openWriter(File file, String[] header) {
         try {
             File parent = file.getParentFile();
             if (parent != null && !parent.exists()) parent.mkdirs();
+            // If the rename fails we keep appending: a mixed file still beats no log at all
+            if (!isEffectivelyEmpty(file) && !headerMatches(file, header)) rollAside(file);
             boolean newFile = !file.exists() || file.length() == 0;
             FileOutputStream fos = new FileOutputStream(file, true);
             OutputStreamWriter w = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
             if (newFile && writeBomOnEmpty) {
                 // UTF-8 BOM (byte order map) so Excel detects encoding (important for “m/s²” characters etc.)
-                w.write('\uFEFF');
+                w.write(CsvFormat.BOM);
                 w.flush();
             }
             return w;
@@ -101,33 +241,31 @@ public class SheetLogger {
     // Make the header: one-time, wide columns for sensors. //
     private synchronized void writeSensorsHeaderIfEmpty() {
         if (sensorsWriter == null || !isEffectivelyEmpty(sensorsFile)) return;
-        writeSensorsRowRaw(
-                "Date", "Time", "ElapsedNs",
-                "Baro_hPa",
-                "Accel_X_mps2", "Accel_Y_mps2", "Accel_Z_mps2",
-                "Gyro_X_radps", "Gyro_Y_radps", "Gyro_Z_radps"
-        );
+        writeSensorsRowRaw((Object[]) CsvFormat.SENSORS_HEADER);
     }
 
     // Write one VERY wide sensor row. Any null value → blank cell (so columns stay aligned, and Excel shows empty)//
     public synchronized void logSensorsWide(
-            long wallMs, long elapsedNs,
+            long elapsedNs,
             Float baro_hPa,
             Float ax, Float ay, Float az,
             Float gx, Float gy, Float gz
     ) {
-        if (sensorsWriter == null) return;
-        writeSensorsRowRaw(
-                fmtDate(wallMs), fmtTime(wallMs), String.valueOf(elapsedNs),
+        if (sensorsWriter == null && pendingSensors == null) return;
+        Object[] row = {
+                null, null, null, null,
                 toCsv(baro_hPa),
                 toCsv(ax), toCsv(ay), toCsv(az),
                 toCsv(gx), toCsv(gy), toCsv(gz)
-        );
+        };
+        timeCells(row, elapsedNs);
+        writeSensorsRowRaw(row);
     }
 
-    // Uses the function in the GNSS section to write the sensors row
+    // Uses the function in the GNSS section to write the sensors row (or hold it if the file isn't open yet)
     private void writeSensorsRowRaw(Object... fields) {
-        writeRow(sensorsWriter, fields);
+        if (pendingSensors != null) hold(pendingSensors, fields);
+        else writeRow(sensorsWriter, fields);
     }
 
     // GNSS
@@ -135,31 +273,64 @@ public class SheetLogger {
     // Header for GNSS per-satellite rows. //
     private synchronized void writeGnssHeaderIfEmpty() {
         if (gnssWriter == null || !isEffectivelyEmpty(gnssFile)) return;
-        writeGnssRowRaw(
-                "Date", "Time", "ElapsedNs",
-                "Constellation", "Svid",
-                "Pseudorange_m", "TDCP_m", "TDCP_rate_mps"
-        );
+        writeGnssRowRaw((Object[]) CsvFormat.GNSS_HEADER);
     }
 
     // GNSS row per satellite per epoch. If tdcpMeters / tdcpRate are null (when ADR not valid yet) we write blank cells.
+    // clockFlags come from ReceiverClockTracker for this epoch (0 = healthy) so solvers can skip bad epochs right here
     public synchronized void logGnssPerSv(
-            long wallMs, long elapsedNs,
+            long elapsedNs,
             int constellation, int svid,
-            double prMeters,
-            Double tdcpMeters, Double tdcpRateMps
+            double prMeters, double prSmoothedMeters,
+            Double tdcpMeters, Double tdcpRateMps,
+            int clockFlags
     ) {
-        if (gnssWriter == null) return;
-        writeGnssRowRaw(
-                fmtDate(wallMs), fmtTime(wallMs), String.valueOf(elapsedNs),
+        if (gnssWriter == null && pendingGnss == null) return;
+        Object[] row = {
+                null, null, null, null,
                 constellation, svid,
-                toCsv(prMeters), toCsv(tdcpMeters), toCsv(tdcpRateMps)
-        );
+                toCsv(prMeters), toCsv(prSmoothedMeters), toCsv(tdcpMeters), toCsv(tdcpRateMps),
+                clockFlags
+        };
+        timeCells(row, elapsedNs);
+        writeGnssRowRaw(row);
     }
 
     // Same as Sensor fx above
     private void writeGnssRowRaw(Object... fields) {
-        writeRow(gnssWriter, fields);
+        if (pendingGnss != null) hold(pendingGnss, fields);
+        else writeRow(gnssWriter, fields);
+    }
+
+    // CLOCK
+
+    // Header for the receiver clock health rows (one per GNSS epoch)
+    private synchronized void writeClockHeaderIfEmpty() {
+        if (clockWriter == null || !isEffectivelyEmpty(clockFile)) return;
+        writeClockRowRaw((Object[]) CsvFormat.CLOCK_HEADER);
+    }
+
+    // One row per GNSS epoch: measured vs filtered bias, drift, their sigmas and the health flags
+    public synchronized void logClock(
+            long elapsedNs,
+            double measuredBiasNs, double biasNs, double driftNsPerS,
+            double biasSigmaNs, double driftSigmaNsPerS,
+            int discontinuityCount, int flags
+    ) {
+        if (clockWriter == null && pendingClock == null) return;
+        Object[] row = {
+                null, null, null, null,
+                toCsv(measuredBiasNs), toCsv(biasNs), toCsv(driftNsPerS),
+                toCsv(biasSigmaNs), toCsv(driftSigmaNsPerS),
+                discontinuityCount, flags
+        };
+        timeCells(row, elapsedNs);
+        writeClockRowRaw(row);
+    }
+
+    private void writeClockRowRaw(Object... fields) {
+        if (pendingClock != null) hold(pendingClock, fields);
+        else writeRow(clockWriter, fields);
     }
 
     // CSV glue! All the familiar functions to make logs with different data
@@ -167,28 +338,39 @@ public class SheetLogger {
     private void writeRow(Writer w, Object... fields) {
         if (w == null) return;
         try {
-            for (int i = 0; i < fields.length; i++) {
-                if (i > 0) w.write(delimiter);
-                w.write(escapeCsvField(fields[i]));
-            }
-            w.write("\r\n"); // CRLF is Excel-friendly
+            w.write(formatRow(fields));
             w.flush();
         } catch (IOException ignored) {}
     }
 
-    // Convert Java object into a CSV cell; numbers use Locale.US to ensure '.' decimal point. If Null, leave blank
-    private String escapeCsvField(Object v) {
-        if (v == null) return "";
-        String s;
-        if (v instanceof Float || v instanceof Double) {
-            s = String.format(Locale.US, "%.9f", ((Number) v).doubleValue());
-            s = s.indexOf('.') >= 0 ? s.replaceAll("0+$", "").replaceAll("\\.$", "") : s;
-        } else {
-            s = String.valueOf(v);
+    // One CSV line, delimiter-separated and CRLF-terminated (CRLF is Excel-friendly)
+    private String formatRow(Object... fields) {
+        StringBuilder sb = new StringBuilder(128);
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append(delimiter);
+            sb.append(escapeCsvField(fields[i]));
         }
-        boolean needsQuotes = s.indexOf(delimiter) >= 0 || s.contains("\"") || s.contains("\n") || s.contains("\r");
-        if (needsQuotes) s = "\"" + s.replace("\"", "\"\"") + "\"";
-        return s;
+        return sb.append("\r\n").toString();
+    }
+
+    // Keep a formatted row in memory until the file is open
+    private void hold(List<String> pending, Object... fields) {
+        if (pending.size() >= MAX_PENDING_ROWS) { droppedWhilePending++; return; }
+        pending.add(formatRow(fields));
+    }
+
+    // Write the rows that waited for the file, then flush once
+    private static void writeLines(Writer w, List<String> lines) {
+        if (w == null || lines == null) return;
+        try {
+            for (String line : lines) w.write(line);
+            w.flush();
+        } catch (IOException ignored) {}
+    }
+
+    // Convert Java object into a CSV cell (shared with the batch tools, see CsvFormat)
+    private String escapeCsvField(Object v) {
+        return CsvFormat.escapeField(v, delimiter);
     }
     // Add this method inside SheetLogger (e.g., near other helpers)
     private boolean isEffectivelyEmpty(File f) {
@@ -197,19 +379,135 @@ public class SheetLogger {
         return len == 0 || (writeBomOnEmpty && len <= 3);
     }
 
+    // Is the first line of f exactly the header we would write (same columns, same delimiter)?
+    private boolean headerMatches(File f, String[] header) throws IOException {
+        String expected = formatRow((Object[]) header);
+        expected = expected.substring(0, expected.length() - 2); // no CRLF
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
+            String first = r.readLine();
+            return first != null && CsvFormat.stripBom(first).equals(expected);
+        }
+    }
+
+    // sensors_log.csv → sensors_log_v1.csv (or _v2, _v3, ... whichever is free first); false if the rename failed
+    private static boolean rollAside(File f) {
+        String name = f.getName();
+        String base = name.endsWith(".csv") ? name.substring(0, name.length() - 4) : name;
+        for (int n = 1; ; n++) {
+            File old = new File(f.getParentFile(), base + "_v" + n + ".csv");
+            if (!old.exists()) return f.renameTo(old);
+        }
+    }
+
     // Ran into some issues with headers not appearing, this was added to push them on
     public synchronized void ensureHeaders() {
         writeSensorsHeaderIfEmpty();
         writeGnssHeaderIfEmpty();
+        writeClockHeaderIfEmpty();
+    }
+    private static String toCsv(Float f)  { return CsvFormat.toCsv(f); }
+    private static String toCsv(Double d) { return CsvFormat.toCsv(d); }
+
+    // STATS
+
+    /*
+        The logs are appended to across runs (and rotations), so the summary has to cover every run in them, not just
+        this one. Next to stats_summary.csv we keep stats_summary.state: the exact SessionStats behind it plus the
+        three log lengths it describes. On open the state is used only if every log is still at least that long
+        (a rolled-aside or deleted log starts over, and so do its stats). A run that was killed before it wrote the
+        summary leaves rows the state doesn't know about; its numbers are missing, the later runs' are not.
+     */
+
+    // stats_summary.csv next to the logs: the earlier runs' stats with this run's merged on (see SessionStats).
+    // Call it once, at the end of the run. Returns the file, or null if the logs never opened or the write failed
+    public synchronized File writeStatsSummary(SessionStats stats) {
+        if (sensorsFile == null) return null;
+        SessionStats total = new SessionStats();
+        if (earlierStats != null) total.merge(earlierStats);
+        total.merge(stats);
+        File dir = sensorsFile.getParentFile();
+        File f = new File(dir, CsvFormat.STATS_FILE);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(f, false), StandardCharsets.UTF_8)) {
+            if (writeBomOnEmpty) w.write(CsvFormat.BOM);
+            w.write(formatRow((Object[]) CsvFormat.STATS_HEADER));
+            for (Object[] row : total.summaryRows()) w.write(formatRow(row));
+        } catch (IOException e) {
+            return null;
+        }
+        // The state for the next run, with the lengths the logs have right now (written whole, then renamed)
+        flushQuietly(sensorsWriter);
+        flushQuietly(gnssWriter);
+        flushQuietly(clockWriter);
+        File state = new File(dir, CsvFormat.STATS_STATE_FILE);
+        File part = new File(dir, CsvFormat.STATS_STATE_FILE + ".part");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(part, false)))) {
+            out.writeLong(sensorsFile.length());
+            out.writeLong(gnssFile.length());
+            out.writeLong(clockFile.length());
+            total.writeTo(out);
+        } catch (IOException e) {
+            part.delete();
+            return f;
+        }
+        if (state.exists()) state.delete();
+        if (!part.renameTo(state)) part.delete();
+        return f;
+    }
+
+    // The earlier runs' stats, if the logs are still the ones they describe (see above); called right after open
+    private void loadEarlierStats() {
+        earlierStats = null;
+        File state = new File(sensorsFile.getParentFile(), CsvFormat.STATS_STATE_FILE);
+        if (!state.isFile()) return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(state)))) {
+            boolean same = sensorsFile.length() >= in.readLong()
+                    && gnssFile.length() >= in.readLong()
+                    && clockFile.length() >= in.readLong();
+            if (same) earlierStats = SessionStats.readFrom(in);
+        } catch (IOException e) {
+            earlierStats = null; // unreadable: the summary starts over with this run
+        }
+    }
+
+    // EXPORT
+
+    // A consistent view of the logs for SessionExporter: flush, then remember how long each file is right now.
+    // Rows are written whole under this lock, so every length ends on a row. Entries are named "<folder>/<file>".
+    // Empty while the files are still opening.
+    // stats_summary.csv is left out: it is only written when the app closes, so while logging it would be the
+    // previous run's numbers packaged next to this run's rows.
+    public synchronized List<SessionExporter.Entry> snapshot(String folder) {
+        List<SessionExporter.Entry> entries = new ArrayList<>();
+        if (sensorsFile == null) return entries;
+        flushQuietly(sensorsWriter);
+        flushQuietly(gnssWriter);
+        flushQuietly(clockWriter);
+        for (File f : new File[] {sensorsFile, gnssFile, clockFile}) {
+            if (f.isFile()) entries.add(new SessionExporter.Entry(f, folder + "/" + f.getName(), f.length()));
+        }
+        return entries;
+    }
+
+    // Everything written so far onto disk (the writers buffer); rows still held while opening are not affected
+    public synchronized void flush() {
+        flushQuietly(sensorsWriter);
+        flushQuietly(gnssWriter);
+        flushQuietly(clockWriter);
+    }
+
+    private static void flushQuietly(Writer w) {
+        try { if (w != null) w.flush(); } catch (IOException ignored) {}
     }
-    private static String toCsv(Float f)  { return f == null ? "" : String.format(Locale.US, "%.6f", f); }
-    private static String toCsv(Double d) { return d == null ? "" : String.format(Locale.US, "%.9f", d); }
 
     // And we take a bow
     public synchronized void close() {
+        closed = true;
+        if (pendingSensors != null) return; // still opening; finishOpen() writes the waiting rows and closes
         try { if (sensorsWriter != null) sensorsWriter.close(); } catch (IOException ignored) {}
         try { if (gnssWriter    != null) gnssWriter.close();    } catch (IOException ignored) {}
+        try { if (clockWriter   != null) clockWriter.close();   } catch (IOException ignored) {}
         sensorsWriter = null;
         gnssWriter = null;
+        clockWriter = null;
     }
 }
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * FanOutBus: every consumer sees the exact stream a direct Sink would, a slow consumer is detected and only costs
+ * dropped events (never an unbounded stall), and a benchmark of the producer's cost as consumers are added.
+ * The producer cost is measured as CPU time of the publishing thread, so consumer threads sharing the core
+ * don't show up as producer time.
+ */
+public class FanOutBusTest {
+    private static final long SIM_NS = 20_000_000_000L;
+
+    @Test
+    public void everyConsumerGetsTheWholeStreamInOrder() {
+        SyntheticLoadGenerator.Config gen = new SyntheticLoadGenerator.Config();
+        gen.adrSlipProbability = 0.2;
+        gen.clockDiscontinuityProbability = 0.1;
+
+        HashSink direct = new HashSink(null);
+        new SyntheticLoadGenerator(gen).run(direct, SIM_NS);
+
+        HashSink inline = new HashSink(null);
+        HashSink[] consumers = new HashSink[FanOutBus.WaitStrategy.values().length - 1];
+        FanOutBus.Config cfg = new FanOutBus.Config();
+        cfg.maxProducerWaitNs = 5_000_000_000L; // nothing may be dropped in this test
+        FanOutBus bus = new FanOutBus(cfg, inline);
+        int k = 0;
+        for (FanOutBus.WaitStrategy w : FanOutBus.WaitStrategy.values()) {
+            if (w == FanOutBus.WaitStrategy.BUSY_SPIN) continue; // a spinning thread on a single-core CI box starves the rest
+            consumers[k] = new HashSink(null);
+            bus.addConsumer(w.name(), consumers[k], w);
+            k++;
+        }
+        bus.start();
+        new SyntheticLoadGenerator(gen).run(bus, SIM_NS);
+        bus.close(10_000);
+
+        System.out.println("fan-out bus:\n" + bus.describe());
+        assertEquals(0, bus.droppedEvents());
+        assertEquals(direct.events, bus.publishedEvents());
+        assertEquals(direct.hash, inline.hash);
+        for (HashSink c : consumers) {
+            assertEquals(direct.events, c.events);
+            assertEquals(direct.hash, c.hash);
+        }
+    }
+
+    @Test
+    public void slowConsumerIsDetectedAndOnlyCostsDrops() {
+        FanOutBus.Config cfg = new FanOutBus.Config();
+        cfg.ringSize = 64;
+        cfg.maxProducerWaitNs = 0; // drop right away
+        HashSink fast = new HashSink(null);
+        HashSink slow = new HashSink(() -> {
+            try { Thread.sleep(1); } catch (InterruptedException ignored) {}
+        });
+        FanOutBus bus = new FanOutBus(cfg, null)
+                .addConsumer("fast", fast, FanOutBus.WaitStrategy.BLOCKING)
+                .addConsumer("slow", slow, FanOutBus.WaitStrategy.BLOCKING);
+        bus.start();
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 5000; i++) bus.onAccel(0f, 0f, 9.81f, i);
+        long producerMs = (System.nanoTime() - t0) / 1_000_000L;
+        bus.close(10_000);
+
+        String d = bus.describe();
+        System.out.println("slow consumer (" + producerMs + " ms to publish 5000):\n" + d);
+        assertTrue(bus.droppedEvents() > 0);
+        assertEquals(5000, bus.publishedEvents() + bus.droppedEvents());
+        assertEquals(bus.publishedEvents(), fast.events);
+        assertEquals(bus.publishedEvents(), slow.events);
+        java.util.regex.Matcher m = java.util.regex.Pattern.compile("slow lag=0 maxLag=\\d+ stalls=(\\d+)").matcher(d);
+        assertTrue(d, m.find() && Long.parseLong(m.group(1)) > 0);
+        assertTrue("producer stalled for " + producerMs + " ms", producerMs < 2000); // 5000 events x 1 ms if it waited
+    }
+
+    @Test
+    public void awaitDrainedMeansConsumersAreCaughtUp() {
+        // What close (onDestroy) relies on: once awaitDrained says yes, a consumer's state can be read from the caller
+        HashSink slow = new HashSink(() -> java.util.concurrent.locks.LockSupport.parkNanos(200_000L));
+        FanOutBus bus = new FanOutBus(null).addConsumer("log", slow, FanOutBus.WaitStrategy.SLEEPING);
+        bus.start();
+        for (int i = 0; i < 2000; i++) bus.onGyro(0.01f, 0f, 0f, i);
+        assertTrue(bus.awaitDrained(10_000));
+        assertEquals(bus.publishedEvents(), slow.events);
+        assertEquals(0, bus.droppedEvents());
+        // Nothing published since: a second wait returns right away
+        long t0 = System.nanoTime();
+        assertTrue(bus.awaitDrained(10_000));
+        assertTrue((System.nanoTime() - t0) < 100_000_000L);
+        bus.close();
+    }
+
+    @Test
+    public void flushMarkerArrivesAfterEverythingBeforeIt() throws InterruptedException {
+        // What onPause relies on: requestFlush returns at once, the consumer flushes on its own thread in order
+        final long[] eventsAtFlush = {-1};
+        final java.util.concurrent.CountDownLatch flushed = new java.util.concurrent.CountDownLatch(1);
+        class FlushingSink extends HashSink implements FanOutBus.Flushable {
+            FlushingSink() { super(() -> java.util.concurrent.locks.LockSupport.parkNanos(100_000L)); }
+            @Override public void onFlush() { eventsAtFlush[0] = events; flushed.countDown(); }
+        }
+        FlushingSink log = new FlushingSink();
+        HashSink other = new HashSink(null); // not Flushable: the marker is skipped
+        FanOutBus bus = new FanOutBus(null)
+                .addConsumer("log", log, FanOutBus.WaitStrategy.SLEEPING)
+                .addConsumer("other", other, FanOutBus.WaitStrategy.SLEEPING);
+        bus.start();
+        for (int i = 0; i < 1000; i++) bus.onGyro(0.01f, 0f, 0f, i);
+        long t0 = System.nanoTime();
+        assertTrue(bus.requestFlush());
+        long requestNs = System.nanoTime() - t0;
+        assertTrue(flushed.await(10, java.util.concurrent.TimeUnit.SECONDS));
+        bus.close();
+
+        System.out.printf("flush request: %.1f us on the caller%n", requestNs / 1e3);
+        assertEquals(1000, eventsAtFlush[0]);
+        assertEquals(1000, other.events);
+        assertTrue("requestFlush waited for the consumer", requestNs < 50_000_000L); // the consumer needs ~100 ms
+    }
+
+    @Test
+    public void producerCostStaysFlatAsConsumersAreAdded() {
+        final int events = 100_000;
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        boolean cpuTime = mx.isCurrentThreadCpuTimeSupported();
+        double[] nsPerEvent = new double[5];
+        int[] counts = {0, 1, 2, 4, 8};
+        for (int c = 0; c < counts.length; c++) {
+            double best = Double.MAX_VALUE;
+            for (int rep = 0; rep < 3; rep++) {
+                FanOutBus.Config cfg = new FanOutBus.Config();
+                cfg.ringSize = 1 << 17; // bigger than the run, so the producer never waits on a consumer
+                FanOutBus bus = new FanOutBus(cfg, null);
+                for (int k = 0; k < counts[c]; k++) {
+                    bus.addConsumer("c" + k, new HashSink(null), FanOutBus.WaitStrategy.SLEEPING);
+                }
+                bus.start();
+                long t0 = cpuTime ? mx.getCurrentThreadCpuTime() : System.nanoTime();
+                for (int i = 0; i < events; i++) bus.onAccel(i, 0f, 9.81f, i);
+                long t1 = cpuTime ? mx.getCurrentThreadCpuTime() : System.nanoTime();
+                bus.close(10_000);
+                assertEquals(0, bus.droppedEvents());
+                best = Math.min(best, (double) (t1 - t0) / events);
+            }
+            nsPerEvent[c] = best;
+            System.out.printf("fan-out producer: %d consumers -> %.1f ns/event (%s time)%n",
+                    counts[c], best, cpuTime ? "cpu" : "wall");
+        }
+        // Adding consumers adds threads, not producer work: 8 consumers may not cost much more than 1
+        assertTrue(String.format("1 consumer %.1f ns vs 8 consumers %.1f ns", nsPerEvent[1], nsPerEvent[4]),
+                nsPerEvent[4] < 3 * nsPerEvent[1] + 100);
+    }
+
+    // Hashes every callback (and optionally does some "work" per event)
+    private static class HashSink implements SensorGnssListener.Sink {
+        private final Runnable work;
+        volatile long events;
+        long hash = 17;
+
+        HashSink(Runnable work) { this.work = work; }
+
+        private void mix(double v) { hash = hash * 31 + Double.doubleToLongBits(v); }
+        private void done() {
+            events++;
+            if (work != null) work.run();
+        }
+
+        @Override public void onBarometer(float hPa, long t) { mix(hPa); mix(t); done(); }
+        @Override public void onAccel(float x, float y, float z, long t) { mix(x); mix(y); mix(z); mix(t); done(); }
+        @Override public void onGyro(float x, float y, float z, long t) { mix(-x); mix(y); mix(z); mix(t); done(); }
+        @Override public void onGnssEpoch(String text, long t) { hash = hash * 31 + text.hashCode(); mix(t); done(); }
+        @Override public void onStatus(String text) { hash = hash * 31 + text.hashCode(); done(); }
+
+        @Override
+        public void onGnssPrTdcp(int constellation, int svid, double pr, double prSmoothed, Double tdcp, Double rate, long t) {
+            mix(constellation); mix(svid); mix(pr); mix(prSmoothed);
+            mix(tdcp == null ? -1 : tdcp); mix(rate == null ? -2 : rate); mix(t);
+            done();
+        }
+
+        @Override
+        public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS, double biasSigmaNs,
+                                  double driftSigmaNsPerS, int discontinuityCount, int flags, long t) {
+            mix(measuredBiasNs); mix(biasNs); mix(driftNsPerS); mix(biasSigmaNs); mix(driftSigmaNsPerS);
+            mix(discontinuityCount); mix(flags); mix(t);
+            done();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Headless soak of SheetLogger with SyntheticLoadGenerator: ramps the IMU rate up and reports the highest
+ * rate the logger keeps up with (simulated time >= wall time), plus a paced run with bursty delivery.
+ * The Sink below logs the same way MainActivity does (one wide sensor row per sensor event, no RecordingPolicy),
+ * so this is the worst case the logger has to take.
+ * The long paced soak only runs when asked for, e.g. 4 hours with seed 7:
+ *     ./gradlew :app:testDebugUnitTest --tests '*SheetLoggerSoakTest' -Pgnsdata.soakHours=4 -Pgnsdata.soakSeed=7
+ * or without Gradle: java -cp <test classes>:<junit> com.gnsdata.SheetLoggerSoakTest --hours 4 --seed 7 [--dir D]
+ */
+public class SheetLoggerSoakTest {
+    private static final long SIM_NS = 2_000_000_000L; // 2 s of simulated capture per step
+    private static final long REPORT_NS = 60_000_000_000L; // long soak: one report line per simulated minute
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void rampFindsMaxSustainedImuRate() throws IOException {
+        double maxSustained = 0;
+        for (double hz = 250; hz <= 16_000; hz *= 2) { // 16 kHz is well past any phone IMU, stop there
+            SyntheticLoadGenerator.Config cfg = new SyntheticLoadGenerator.Config();
+            cfg.imuRateHz = hz;
+            SheetLogger logger = SheetLogger.atDirectory(tmp.newFolder("ramp" + (int) hz), ',', true);
+            logger.ensureHeaders();
+
+            long t0 = System.nanoTime();
+            SyntheticLoadGenerator.Result r = new SyntheticLoadGenerator(cfg).run(new LoggingSink(logger), SIM_NS);
+            logger.close();
+            long wallNs = System.nanoTime() - t0;
+
+            double speed = (double) SIM_NS / wallNs; // > 1 → faster than real time
+            System.out.printf("soak IMU %6.0f Hz: %8d events in %6.1f ms (%.0f events/s, %.2fx real time)%n",
+                    hz, r.events(), wallNs / 1e6, r.events() * 1e9 / wallNs, speed);
+            if (speed >= 1.0) maxSustained = hz;
+            else break; // fell behind; faster steps only get worse
+        }
+        System.out.printf("soak: max sustained IMU rate %.0f Hz (accel + gyro + baro + 60 GNSS signals/epoch)%n", maxSustained);
+        assertTrue("logger can't even keep up with 250 Hz", maxSustained >= 250);
+    }
+
+    @Test
+    public void pacedBurstyRunWritesEverything() throws IOException {
+        SyntheticLoadGenerator.Config cfg = new SyntheticLoadGenerator.Config();
+        cfg.imuRateHz = 200;
+        cfg.burstSize = 20; // sensor hub FIFO flush
+        cfg.gnssRateHz = 2;
+        cfg.adrSlipProbability = 0.1;
+        cfg.clockDiscontinuityProbability = 0.25;
+        File dir = tmp.newFolder("paced");
+        SheetLogger logger = SheetLogger.atDirectory(dir, ',', true);
+        logger.ensureHeaders();
+
+        LoggingSink sink = new LoggingSink(logger);
+        SyntheticLoadGenerator.Result r = new SyntheticLoadGenerator(cfg).runRealtime(sink, 1_000_000_000L);
+        File statsFile = logger.writeStatsSummary(sink.stats);
+        logger.close();
+
+        System.out.printf("soak paced: %d events, worst lag %.1f ms, %d slips, %d clock discontinuities%n",
+                r.events(), r.maxLagNs / 1e6, r.slips, r.discontinuities);
+        // Header + one line per row (CRLF endings)
+        assertEquals(1 + r.sensorEvents, lines(new File(dir, CsvFormat.SENSORS_FILE)));
+        assertEquals(1 + r.gnssRows, lines(new File(dir, CsvFormat.GNSS_FILE)));
+        assertEquals(1 + r.epochs, lines(new File(dir, CsvFormat.CLOCK_FILE)));
+        assertEquals(new File(dir, CsvFormat.STATS_FILE), statsFile);
+        assertEquals(1 + sink.stats.summaryRows().size(), lines(statsFile));
+        assertEquals(cfg.satellites, sink.stats.satelliteCount());
+        assertTrue("fell " + r.maxLagNs / 1e6 + " ms behind", r.maxLagNs < 500_000_000L);
+    }
+
+    @Test
+    public void exportWhileLoggingIsConsistent() throws Exception {
+        SyntheticLoadGenerator.Config cfg = new SyntheticLoadGenerator.Config();
+        cfg.imuRateHz = 2000;
+        File dir = tmp.newFolder("export");
+        SheetLogger logger = SheetLogger.atDirectory(dir, ',', true);
+        logger.ensureHeaders();
+        Thread capture = new Thread(() -> new SyntheticLoadGenerator(cfg).run(new LoggingSink(logger), 20_000_000_000L));
+        capture.start();
+
+        // Export a few times while rows keep coming: every snapshot must end on a whole row
+        int exports = 0;
+        while (capture.isAlive() || exports == 0) {
+            java.util.List<SessionExporter.Entry> entries = logger.snapshot("session");
+            SessionExporter.Result r = SessionExporter.writeTar(entries,
+                    new File(tmp.getRoot(), "exports/session" + exports + SessionExporter.EXTENSION), 0);
+            assertEquals(3, r.entries);
+            for (SessionExporter.Entry e : entries) {
+                byte[] now = Files.readAllBytes(e.file.toPath());
+                assertTrue(e.name, e.length <= now.length);
+                assertEquals(e.name + " snapshot ends mid-row", '\n', now[(int) e.length - 1]);
+            }
+            exports++;
+            Thread.sleep(20);
+        }
+        capture.join();
+        logger.close();
+        System.out.printf("export while logging: %d consistent snapshots%n", exports);
+    }
+
+    @Test
+    public void longPacedSoak() throws IOException {
+        String hours = System.getProperty("gnsdata.soakHours");
+        Assume.assumeTrue("set -Pgnsdata.soakHours=N to run the long soak", hours != null);
+        soak(Double.parseDouble(hours), Long.getLong("gnsdata.soakSeed", 1L), tmp.newFolder("long"));
+    }
+
+    // Headless entry point: --hours N (fractions are fine) --seed S --dir D (default: a new temp directory)
+    public static void main(String[] args) throws IOException {
+        double hours = 1;
+        long seed = 1;
+        File dir = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--hours": hours = Double.parseDouble(args[i + 1]); break;
+                case "--seed": seed = Long.parseLong(args[i + 1]); break;
+                case "--dir": dir = new File(args[i + 1]); break;
+                default: throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (dir == null) dir = Files.createTempDirectory("gnsdata-soak").toFile();
+        soak(hours, seed, dir);
+    }
+
+    /*
+        Paced soak for `hours` of capture at the default rates with bursty delivery, slips and clock jumps.
+        One line per simulated minute (rows so far, that minute's worst lag), then the row counts in the files
+        are checked against what was generated.
+     */
+    static void soak(double hours, long seed, File dir) throws IOException {
+        SyntheticLoadGenerator.Config cfg = new SyntheticLoadGenerator.Config();
+        cfg.seed = seed;
+        cfg.burstSize = 20;
+        SyntheticLoadGenerator gen = new SyntheticLoadGenerator(cfg);
+        SheetLogger logger = SheetLogger.atDirectory(dir, ',', true);
+        logger.ensureHeaders();
+        LoggingSink sink = new LoggingSink(logger);
+
+        long totalNs = (long) (hours * 3600e9);
+        long sensors = 0, gnss = 0, epochs = 0, worstLag = 0;
+        System.out.printf("soak: %.2f h, seed %d, logging to %s%n", hours, seed, dir);
+        for (long done = 0; done < totalNs; ) {
+            long chunk = Math.min(REPORT_NS, totalNs - done);
+            SyntheticLoadGenerator.Result r = gen.runRealtime(sink, chunk);
+            done += chunk;
+            sensors += r.sensorEvents;
+            gnss += r.gnssRows;
+            epochs += r.epochs;
+            worstLag = Math.max(worstLag, r.maxLagNs);
+            System.out.printf("soak %7.1f min: %10d sensor rows %9d GNSS rows %7d epochs, lag %6.1f ms (worst %6.1f ms)%n",
+                    done / 60e9, sensors, gnss, epochs, r.maxLagNs / 1e6, worstLag / 1e6);
+        }
+        logger.writeStatsSummary(sink.stats);
+        logger.close();
+
+        long sensorLines = lines(new File(dir, CsvFormat.SENSORS_FILE)) - 1;
+        long gnssLines = lines(new File(dir, CsvFormat.GNSS_FILE)) - 1;
+        long clockLines = lines(new File(dir, CsvFormat.CLOCK_FILE)) - 1;
+        System.out.printf("soak done: rows in files %d / %d / %d (generated %d / %d / %d), worst lag %.1f ms%n",
+                sensorLines, gnssLines, clockLines, sensors, gnss, epochs, worstLag / 1e6);
+        assertEquals(sensors, sensorLines);
+        assertEquals(gnss, gnssLines);
+        assertEquals(epochs, clockLines);
+    }
+
+    @Test
+    public void sameSeedSameStream() {
+        SyntheticLoadGenerator.Config cfg = new SyntheticLoadGenerator.Config();
+        cfg.adrSlipProbability = 0.2;
+        cfg.clockDiscontinuityProbability = 0.2;
+        CountingSink a = new CountingSink(), b = new CountingSink();
+        new SyntheticLoadGenerator(cfg).run(a, 10_000_000_000L);
+        new SyntheticLoadGenerator(cfg).run(b, 10_000_000_000L);
+        assertEquals(a.hash, b.hash);
+        assertTrue(a.nullTdcp > 0);
+    }
+
+    // Streams the file: a long soak's sensors log doesn't fit in memory as a List<String>
+    private static long lines(File f) throws IOException {
+        try (java.util.stream.Stream<String> s = Files.lines(f.toPath(), java.nio.charset.StandardCharsets.UTF_8)) {
+            return s.count();
+        }
+    }
+
+    // Logs like MainActivity: sample-and-hold wide sensor rows, per-SV GNSS rows stamped with the epoch's clock flags
+    private static final class LoggingSink implements SensorGnssListener.Sink {
+        private final SheetLogger logger;
+        final SessionStats stats = new SessionStats();
+        private Float baro, ax, ay, az, gx, gy, gz;
+        private int clockFlags;
+
+        LoggingSink(SheetLogger logger) {
+            this.logger = logger;
+            // Like MainActivity: one time base, calibrated off the hot path (nanoTime stands in for elapsed realtime)
+            TimeBase timeBase = new TimeBase();
+            timeBase.calibrateFromSystem(System.nanoTime(), System.currentTimeMillis(), System.nanoTime());
+            logger.setTimeBase(timeBase);
+        }
+
+        @Override public void onBarometer(float hPa, long t) { baro = hPa; stats.onBarometer(hPa, t); row(t); }
+        @Override public void onAccel(float x, float y, float z, long t) { ax = x; ay = y; az = z; stats.onAccel(x, y, z, t); row(t); }
+        @Override public void onGyro(float x, float y, float z, long t) { gx = x; gy = y; gz = z; stats.onGyro(x, y, z, t); row(t); }
+        @Override public void onGnssEpoch(String multiLineText, long t) { stats.onEpoch(); }
+        @Override public void onStatus(String statusText) {}
+
+        @Override
+        public void onGnssPrTdcp(int constellation, int svid, double pr, double prSmoothed, Double tdcp, Double rate, long t) {
+            stats.onSatellite(constellation, svid, pr, prSmoothed, rate, t);
+            logger.logGnssPerSv(t, constellation, svid, pr, prSmoothed, tdcp, rate, clockFlags);
+        }
+
+        @Override
+        public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS, double biasSigmaNs,
+                                  double driftSigmaNsPerS, int discontinuityCount, int flags, long t) {
+            clockFlags = flags;
+            logger.logClock(t, measuredBiasNs, biasNs, driftNsPerS, biasSigmaNs,
+                    driftSigmaNsPerS, discontinuityCount, flags);
+        }
+
+        private void row(long t) {
+            logger.logSensorsWide(t, baro, ax, ay, az, gx, gy, gz);
+        }
+    }
+
+    // Folds every callback into a hash so two runs can be compared
+    private static final class CountingSink implements SensorGnssListener.Sink {
+        long hash = 17;
+        int nullTdcp;
+
+        private void mix(double v) { hash = hash * 31 + Double.doubleToLongBits(v); }
+
+        @Override public void onBarometer(float hPa, long t) { mix(hPa); mix(t); }
+        @Override public void onAccel(float x, float y, float z, long t) { mix(x); mix(y); mix(z); mix(t); }
+        @Override public void onGyro(float x, float y, float z, long t) { mix(x); mix(y); mix(z); mix(t); }
+        @Override public void onGnssEpoch(String multiLineText, long t) { hash = hash * 31 + multiLineText.hashCode(); }
+        @Override public void onStatus(String statusText) {}
+
+        @Override
+        public void onGnssPrTdcp(int constellation, int svid, double pr, double prSmoothed, Double tdcp, Double rate, long t) {
+            mix(constellation); mix(svid); mix(pr);
+            if (tdcp == null) nullTdcp++; else mix(tdcp);
+        }
+
+        @Override
+        public void onClockHealth(double measuredBiasNs, double biasNs, double driftNsPerS, double biasSigmaNs,
+                                  double driftSigmaNsPerS, int discontinuityCount, int flags, long t) {
+            mix(measuredBiasNs); mix(discontinuityCount); mix(flags);
+        }
+    }
+}
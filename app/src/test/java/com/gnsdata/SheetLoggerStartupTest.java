@@ -0,0 +1,175 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup fast path: openAsync must hand the logger back before storage has even answered, so the folder factory
+ * is held on a latch while the caller logs its first rows (they have to wait in memory and come out in order,
+ * after the BOM and header). The caller's cost of openAsync is measured against what a synchronous open (mkdirs,
+ * opens, BOM, headers) blocks the caller for, and has to be lower: that is the time-to-first-frame it saves.
+ */
+public class SheetLoggerStartupTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void callerReturnsBeforeStorageAndKeepsRowsInOrder() throws Exception {
+        final int runs = 30;
+        long[] openNs = new long[runs];
+        long[] asyncNs = new long[runs];
+
+        // What a synchronous open costs the caller on this disk (no artificial delay)
+        for (int i = 0; i < runs; i++) {
+            File dir = new File(tmp.getRoot(), "sync" + i + "/logs");
+            long t0 = System.nanoTime();
+            SheetLogger l = SheetLogger.atDirectory(dir, ',', true);
+            l.ensureHeaders();
+            openNs[i] = System.nanoTime() - t0;
+            l.close();
+        }
+
+        for (int i = 0; i < runs; i++) {
+            final File dir = new File(tmp.getRoot(), "async" + i + "/logs");
+            final CountDownLatch storage = new CountDownLatch(1); // storage "answers" only when we say so
+            final CountDownLatch ready = new CountDownLatch(1);
+            long t0 = System.nanoTime();
+            SheetLogger l = SheetLogger.openAsync(() -> {
+                storage.await();
+                return dir;
+            }, ',', true, logger -> ready.countDown());
+            asyncNs[i] = System.nanoTime() - t0;
+            assertEquals("openAsync waited for storage", 1, ready.getCount());
+
+            // These rows are logged while the factory is still blocked, so they must be held in memory
+            for (int r = 0; r < 5; r++) l.logSensorsWide(r, 1013.25f, 0f, 0f, 9.81f, null, null, null);
+            l.logGnssPerSv(7, 1, 12, 2.1e7, 2.1e7, null, null, 0);
+            assertTrue(!dir.exists());
+            storage.countDown();
+            assertTrue(ready.await(5, TimeUnit.SECONDS));
+            l.logSensorsWide(5, 1013.25f, 0f, 0f, 9.81f, null, null, null);
+            l.close();
+
+            List<String> sensors = lines(new File(dir, CsvFormat.SENSORS_FILE));
+            assertTrue("BOM first", sensors.get(0).startsWith("\uFEFFDate,Time,ElapsedNs"));
+            assertEquals(1 + 6, sensors.size());
+            for (int r = 0; r < 6; r++) assertEquals(String.valueOf(r), sensors.get(1 + r).split(",")[2]);
+            List<String> gnss = lines(new File(dir, CsvFormat.GNSS_FILE));
+            assertEquals(2, gnss.size());
+            assertEquals(0, l.droppedWhilePending());
+        }
+
+        System.out.println(String.format(Locale.US,
+                "logger open: files/BOM/headers %.1f us median (what a sync open blocks the caller for), "
+                        + "openAsync returns in %.1f us median (first call %.1f us: starts the I/O thread)",
+                median(openNs) / 1e3, median(asyncNs) / 1e3, asyncNs[0] / 1e3));
+        assertTrue("openAsync should cost the caller less than a synchronous open",
+                median(asyncNs) < median(openNs));
+    }
+
+    @Test
+    public void reopeningKeepsSingleHeader() throws Exception {
+        final File dir = new File(tmp.getRoot(), "logs");
+        for (int i = 0; i < 2; i++) {
+            final CountDownLatch ready = new CountDownLatch(1);
+            SheetLogger l = SheetLogger.openAsync(() -> dir, ';', true, logger -> ready.countDown());
+            l.logGnssPerSv(i, 1, 3, 2.2e7, 2.2e7, 0.5, 0.5, 0);
+            assertTrue(ready.await(5, TimeUnit.SECONDS));
+            l.close();
+        }
+        List<String> gnss = lines(new File(dir, CsvFormat.GNSS_FILE));
+        assertEquals(3, gnss.size()); // one header, two rows
+        assertTrue(gnss.get(0).startsWith("\uFEFFDate;Time"));
+        assertTrue(!gnss.get(2).startsWith("\uFEFF"));
+    }
+
+    @Test
+    public void logWithAnOlderHeaderIsMovedAside() throws Exception {
+        // A sensors log from before GpsTimeNs existed, plus an earlier roll-aside already taking _v1
+        File dir = tmp.newFolder("upgrade");
+        String oldHeader = "\uFEFFDate,Time,ElapsedNs,Baro_hPa,Accel_X_mps2,Accel_Y_mps2,Accel_Z_mps2,"
+                + "Gyro_X_radps,Gyro_Y_radps,Gyro_Z_radps\r\n";
+        Files.write(new File(dir, CsvFormat.SENSORS_FILE).toPath(),
+                (oldHeader + "2025-08-20,12:00:00.000,5,1013.2,0.1,0.2,9.8,,,\r\n").getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "sensors_log_v1.csv").toPath(), "older\r\n".getBytes(StandardCharsets.UTF_8));
+
+        SheetLogger l = SheetLogger.atDirectory(dir, ',', true);
+        l.ensureHeaders();
+        l.logSensorsWide(7, 1013.25f, 0f, 0f, 9.81f, null, null, null);
+        l.logGnssPerSv(7, 1, 12, 2.1e7, 2.1e7, null, null, 0); // gnss log is new: nothing to move
+        l.close();
+
+        List<String> moved = lines(new File(dir, "sensors_log_v2.csv"));
+        assertEquals(oldHeader.trim(), moved.get(0));
+        assertEquals(2, moved.size());
+        List<String> sensors = lines(new File(dir, CsvFormat.SENSORS_FILE));
+        String[] header = CsvFormat.splitRow(CsvFormat.stripBom(sensors.get(0)), ',');
+        assertEquals(Arrays.asList(CsvFormat.SENSORS_HEADER), Arrays.asList(header));
+        assertEquals(2, sensors.size());
+        assertEquals("7", sensors.get(1).split(",")[CsvFormat.columnOf(header, "ElapsedNs")]);
+        assertTrue(!new File(dir, "gnss_log_v1.csv").exists());
+
+        // Same header again: appended to, not moved
+        SheetLogger again = SheetLogger.atDirectory(dir, ',', true);
+        again.logSensorsWide(8, 1013.25f, 0f, 0f, 9.81f, null, null, null);
+        again.close();
+        assertEquals(3, lines(new File(dir, CsvFormat.SENSORS_FILE)).size());
+        assertTrue(!new File(dir, "sensors_log_v3.csv").exists());
+    }
+
+    @Test
+    public void statsSummaryCoversEveryRunInTheLogs() throws Exception {
+        File dir = tmp.newFolder("runs");
+        assertEquals("3", accelCount(run(dir, 3, 0))); // first launch
+        assertEquals("5", accelCount(run(dir, 2, 10))); // relaunch / rotation: appended to the same logs
+
+        // The sensors log was started over (deleted here, rolled aside after an upgrade): so are its stats
+        assertTrue(new File(dir, CsvFormat.SENSORS_FILE).delete());
+        assertEquals("4", accelCount(run(dir, 4, 20)));
+    }
+
+    // One app run: open, log `samples` accel rows from elapsed `t0` with their stats, write the summary, close
+    private static File run(File dir, int samples, long t0) {
+        SheetLogger l = SheetLogger.atDirectory(dir, ',', true);
+        SessionStats stats = new SessionStats();
+        for (int i = 0; i < samples; i++) {
+            l.logSensorsWide(t0 + i, null, 0.1f, 0f, 9.81f, null, null, null);
+            stats.onAccel(0.1f, 0f, 9.81f, t0 + i);
+        }
+        File summary = l.writeStatsSummary(stats);
+        l.close();
+        return summary;
+    }
+
+    // The Count cell of the Accel_X_mps2 row
+    private static String accelCount(File summary) throws IOException {
+        for (String line : lines(summary)) {
+            String[] cells = CsvFormat.splitRow(CsvFormat.stripBom(line), ',');
+            if (cells[3].equals("Accel_X_mps2")) return cells[CsvFormat.columnOf(CsvFormat.STATS_HEADER, "Count")];
+        }
+        throw new AssertionError("no Accel_X_mps2 row in " + summary);
+    }
+
+    private static List<String> lines(File f) throws IOException {
+        return Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static long median(long[] v) {
+        long[] c = v.clone();
+        Arrays.sort(c);
+        return c[c.length / 2];
+    }
+}
@@ -0,0 +1,205 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project fakes a phone: it drives any SensorGnssListener.Sink with made-up but
+plausible sensor and GNSS callbacks, so the logging/streaming side can be soak-tested without hardware.
+    - IMU (accel + gyro) at imuRateHz (up to kHz), barometer at baroRateHz
+    - GNSS epochs at gnssRateHz: onClockHealth, then one onGnssPrTdcp per satellite per frequency, then onGnssEpoch
+    - Random ADR slips (TDCP comes through as null), receiver clock discontinuities (every TDCP of that epoch is null)
+    - Bursty delivery: events go out burstSize at a time, like a sensor hub flushing its FIFO
+Everything comes from one seeded Random, so the same Config + seed always produces the same stream.
+It lives with the unit tests (nothing in the APK needs it); SheetLoggerSoakTest drives the logger with it, including
+an hours-long paced soak (-Pgnsdata.soakHours=N, or its main()).
+
+Two ways to run it:
+    - run(sink, durationNs)            as fast as the sink can take it (timestamps are simulated) → max throughput
+    - runRealtime(sink, durationNs)    paced to the wall clock; the Result says how far behind schedule the sink fell
+Each call carries on where the previous one stopped (same stream, later timestamps), so a long run can be driven
+in chunks with a report after each.
+ */
+
+import java.util.Random;
+import java.util.concurrent.locks.LockSupport;
+
+public final class SyntheticLoadGenerator {
+
+    // Knobs (public fields with defaults, same idea as RecordingPolicy.Config)
+    public static final class Config {
+        public long seed = 1;
+        public double imuRateHz = 200;              // accel AND gyro each at this rate
+        public double baroRateHz = 25;
+        public double gnssRateHz = 1;
+        public int satellites = 30;                 // spread over GPS, GLONASS, BeiDou, Galileo
+        public int frequencies = 2;                 // 1 = L1 only, 2 = L1 + L5/E5a (one row per signal)
+        public double adrSlipProbability = 0.01;    // per signal per epoch
+        public double clockDiscontinuityProbability = 0.002; // per epoch
+        public int burstSize = 1;                   // events delivered back to back (realtime mode)
+        public double prNoiseMeters = 3.0;
+    }
+
+    // What happened during one run
+    public static final class Result {
+        public long sensorEvents, gnssRows, epochs, slips, discontinuities;
+        public long wallNs;      // time spent inside the run
+        public long maxLagNs;    // realtime mode: worst delay between an event's due time and its delivery
+
+        public long events() { return sensorEvents + gnssRows + epochs; }
+        public double eventsPerSecond() { return wallNs > 0 ? events() * 1e9 / wallNs : 0; }
+    }
+
+    private static final int[] CONSTELLATIONS = {1, 3, 5, 6}; // GPS, GLONASS, BeiDou, Galileo
+    private static final long START_NS = 1_000_000_000L;     // elapsed realtime of the first event
+
+    private final Config cfg;
+    private final Random rnd;
+
+    // Per-signal state (primitive arrays, sized once)
+    private final int[] constel, svid;
+    private final double[] range, rate, lastRange;
+    private final boolean[] hasLast;
+
+    private int discontinuityCount;
+    private final StringBuilder text = new StringBuilder(4096);
+
+    // Where the stream is: next due time per stream (simulated elapsed ns) and the barometer's random walk
+    private final long imuPeriod, baroPeriod, gnssPeriod;
+    private long simNs = START_NS;
+    private long nextAccel, nextGyro, nextBaro, nextGnss;
+    private double baro = 1013.25;
+
+    public SyntheticLoadGenerator(Config cfg) {
+        this.cfg = cfg;
+        this.rnd = new Random(cfg.seed);
+        int n = cfg.satellites * cfg.frequencies;
+        constel = new int[n];
+        svid = new int[n];
+        range = new double[n];
+        rate = new double[n];
+        lastRange = new double[n];
+        hasLast = new boolean[n];
+        for (int s = 0; s < cfg.satellites; s++) {
+            double r0 = 2.0e7 + rnd.nextDouble() * 5.0e6; // 20,000-25,000 km
+            double v0 = (rnd.nextDouble() - 0.5) * 1600;   // ±800 m/s line-of-sight
+            for (int f = 0; f < cfg.frequencies; f++) {
+                int i = s * cfg.frequencies + f;
+                constel[i] = CONSTELLATIONS[s % CONSTELLATIONS.length];
+                svid[i] = 1 + s / CONSTELLATIONS.length;
+                range[i] = r0;
+                rate[i] = v0;
+            }
+        }
+        imuPeriod = periodNs(cfg.imuRateHz);
+        baroPeriod = periodNs(cfg.baroRateHz);
+        gnssPeriod = periodNs(cfg.gnssRateHz);
+        // Gyro sits half a period after accel like two separate sensors
+        nextAccel = START_NS;
+        nextGyro = START_NS + imuPeriod / 2;
+        nextBaro = START_NS;
+        nextGnss = START_NS + gnssPeriod;
+    }
+
+    public SyntheticLoadGenerator() { this(new Config()); }
+
+    // As fast as possible: timestamps advance in simulated time, wall time is whatever the sink costs
+    public Result run(SensorGnssListener.Sink sink, long durationNs) {
+        return drive(sink, durationNs, false);
+    }
+
+    // Paced to the wall clock (bursts of burstSize events), records how far behind the sink fell
+    public Result runRealtime(SensorGnssListener.Sink sink, long durationNs) {
+        return drive(sink, durationNs, true);
+    }
+
+    // Simulated elapsed time the stream has reached
+    public long simulatedNs() { return simNs; }
+
+    private Result drive(SensorGnssListener.Sink sink, long durationNs, boolean realtime) {
+        Result res = new Result();
+        long start = simNs;
+        long end = start + durationNs;
+
+        long wall0 = System.nanoTime();
+        int inBurst = 0;
+        while (true) {
+            long t = Math.min(Math.min(nextAccel, nextGyro), Math.min(nextBaro, nextGnss));
+            if (t >= end) break;
+
+            if (realtime) {
+                long due = wall0 + (t - start);
+                if (inBurst == 0) {
+                    long now = System.nanoTime();
+                    while (now < due) { // wait for the burst's first event, then hand the whole burst over
+                        LockSupport.parkNanos(due - now);
+                        now = System.nanoTime();
+                    }
+                }
+                inBurst = (inBurst + 1) % Math.max(1, cfg.burstSize);
+                long lag = System.nanoTime() - due;
+                if (lag > res.maxLagNs) res.maxLagNs = lag;
+            }
+
+            if (t == nextAccel) {
+                sink.onAccel(gauss(0.05f), gauss(0.05f), 9.81f + gauss(0.05f), t);
+                nextAccel += imuPeriod;
+                res.sensorEvents++;
+            } else if (t == nextGyro) {
+                sink.onGyro(gauss(0.01f), gauss(0.01f), gauss(0.01f), t);
+                nextGyro += imuPeriod;
+                res.sensorEvents++;
+            } else if (t == nextBaro) {
+                baro += rnd.nextGaussian() * 0.002;
+                sink.onBarometer((float) (baro + rnd.nextGaussian() * 0.02), t);
+                nextBaro += baroPeriod;
+                res.sensorEvents++;
+            } else {
+                epoch(sink, t, gnssPeriod * 1e-9, res);
+                nextGnss += gnssPeriod;
+            }
+        }
+        simNs = end;
+        res.wallNs = System.nanoTime() - wall0;
+        return res;
+    }
+
+    // One GNSS epoch in the same order SensorGnssListener produces it
+    private void epoch(SensorGnssListener.Sink sink, long t, double dtS, Result res) {
+        boolean disc = rnd.nextDouble() < cfg.clockDiscontinuityProbability;
+        int flags = 0;
+        if (disc) {
+            discontinuityCount++;
+            flags = ReceiverClockTracker.FLAG_HW_DISCONTINUITY;
+            res.discontinuities++;
+        }
+        sink.onClockHealth(rnd.nextGaussian() * 10, 0.0, 5.0 + rnd.nextGaussian(), 10.0, 1.0,
+                discontinuityCount, flags, t);
+
+        text.setLength(0);
+        for (int i = 0; i < range.length; i++) {
+            range[i] += rate[i] * dtS;
+            double pr = range[i] + rnd.nextGaussian() * cfg.prNoiseMeters;
+            boolean slip = rnd.nextDouble() < cfg.adrSlipProbability;
+            if (slip) res.slips++;
+            Double tdcp = null, tdcpRate = null;
+            if (hasLast[i] && !slip && !disc) {
+                double d = range[i] - lastRange[i] + rnd.nextGaussian() * 0.003;
+                tdcp = d;
+                tdcpRate = d / dtS;
+            }
+            hasLast[i] = !slip && !disc;
+            lastRange[i] = range[i];
+            sink.onGnssPrTdcp(constel[i], svid[i], pr, range[i], tdcp, tdcpRate, t);
+            res.gnssRows++;
+            if (text.length() > 0) text.append('\n');
+            text.append("C").append(constel[i]).append(" SV").append(svid[i]).append(" PR=").append((long) pr);
+        }
+        sink.onGnssEpoch(text.toString(), t);
+        res.epochs++;
+    }
+
+    private float gauss(float sigma) { return (float) (rnd.nextGaussian() * sigma); }
+
+    private static long periodNs(double hz) {
+        return (hz > 0) ? Math.max(1L, Math.round(1e9 / hz)) : Long.MAX_VALUE / 4; // 0 Hz → never
+    }
+}
@@ -0,0 +1,23 @@
+// Command-line batch reprocessor for recorded gnss_log.csv / sensors_log.csv pairs (runs on any JVM, no Android).
+plugins {
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The sources carry non-ASCII (→, −, ², µ) in comments and strings: don't depend on the build machine's locale
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+application {
+    mainClass.set("com.gnsdata.batch.BatchReprocess")
+}
+
+dependencies {
+    implementation(project(":core"))
+    testImplementation(libs.junit)
+}
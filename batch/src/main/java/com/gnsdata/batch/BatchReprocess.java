@@ -0,0 +1,169 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the command-line entry point for reprocessing recorded logs on a
+desktop/server. Every folder holding a gnss_log.csv and/or sensors_log.csv (what the app writes under
+files/logs) is one session. Sessions, and segments inside each session, are spread over a fork/join pool,
+and one summary row per session is written out. --stats also writes every session's per-sensor / per-satellite
+statistics (the same table the app writes to stats_summary.csv, with a Session column in front).
+
+Usage:
+    batch [--threads N] [--segment-mb M] [--gap-ms G] [--out summary.csv] [--stats stats.csv] [--sweep] <dir> [<dir> ...]
+--sweep runs the same input with 1, 2, 4, ... up to N threads first and prints MB/s and speed-up per thread count
+to stderr, to check how close to linear the scaling is on the machine at hand.
+ */
+
+import com.gnsdata.CsvFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class BatchReprocess {
+    // Defaults: ~32 MB per segment is a few seconds of work per core; 2 s between epochs counts as a gap (they arrive at ~1 Hz)
+    static final long DEFAULT_SEGMENT_BYTES = 32L * 1024 * 1024;
+    static final long DEFAULT_GAP_NS = 2_000_000_000L;
+
+    private BatchReprocess() {}
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long segmentBytes = DEFAULT_SEGMENT_BYTES;
+        long gapNs = DEFAULT_GAP_NS;
+        String out = null;
+        String statsOut = null;
+        boolean sweep = false;
+        List<File> roots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            if (a.equals("--threads") && i + 1 < args.length) threads = Integer.parseInt(args[++i]);
+            else if (a.equals("--segment-mb") && i + 1 < args.length) segmentBytes = Long.parseLong(args[++i]) * 1024 * 1024;
+            else if (a.equals("--gap-ms") && i + 1 < args.length) gapNs = Long.parseLong(args[++i]) * 1_000_000L;
+            else if (a.equals("--out") && i + 1 < args.length) out = args[++i];
+            else if (a.equals("--stats") && i + 1 < args.length) statsOut = args[++i];
+            else if (a.equals("--sweep")) sweep = true;
+            else if (a.startsWith("--")) { usage(); return; }
+            else roots.add(new File(a));
+        }
+        if (roots.isEmpty()) { usage(); return; }
+
+        List<File> sessions = findSessions(roots);
+        if (sweep) sweep(sessions, threads, segmentBytes, gapNs);
+        long t0 = System.nanoTime();
+        List<SessionSummary> results = run(sessions, threads, segmentBytes, gapNs);
+        long t1 = System.nanoTime();
+
+        char delim = ',';
+        PrintWriter pw = (out == null)
+                ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : new PrintWriter(new OutputStreamWriter(new FileOutputStream(out), StandardCharsets.UTF_8));
+        try {
+            pw.print(SessionSummary.join(SessionSummary.HEADER, delim));
+            pw.print("\r\n"); // CRLF like the app's own CSVs
+            for (SessionSummary s : results) {
+                pw.print(s.toCsvLine(delim));
+                pw.print("\r\n");
+            }
+        } finally {
+            if (out == null) pw.flush(); else pw.close();
+        }
+        if (statsOut != null) writeStats(results, statsOut, delim);
+        System.err.println(String.format(Locale.US, "%d sessions, %d threads, %.2f s",
+                results.size(), threads, (t1 - t0) * 1e-9));
+    }
+
+    // One table for all sessions: Session + CsvFormat.STATS_HEADER
+    static void writeStats(List<SessionSummary> results, String path, char delim) throws IOException {
+        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8))) {
+            Object[] header = new Object[CsvFormat.STATS_HEADER.length + 1];
+            header[0] = "Session";
+            System.arraycopy(CsvFormat.STATS_HEADER, 0, header, 1, CsvFormat.STATS_HEADER.length);
+            pw.print(SessionSummary.join(header, delim));
+            pw.print("\r\n");
+            for (SessionSummary s : results) {
+                for (Object[] row : s.stats().summaryRows()) {
+                    Object[] line = new Object[row.length + 1];
+                    line[0] = s.session;
+                    System.arraycopy(row, 0, line, 1, row.length);
+                    pw.print(SessionSummary.join(line, delim));
+                    pw.print("\r\n");
+                }
+            }
+        }
+    }
+
+    // Reprocess the given session folders; results come back in the same order as the input
+    static List<SessionSummary> run(List<File> sessions, int threads, long segmentBytes, long gapNs) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return pool.invoke(new RecursiveTask<List<SessionSummary>>() {
+                @Override
+                protected List<SessionSummary> compute() {
+                    List<SessionTask> tasks = new ArrayList<>();
+                    for (File dir : sessions) tasks.add(new SessionTask(dir, dir.getPath(), segmentBytes, gapNs));
+                    invokeAll(tasks);
+                    List<SessionSummary> out = new ArrayList<>();
+                    for (SessionTask t : tasks) out.add(t.join());
+                    return out;
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Thread counts 1, 2, 4, ... and maxThreads itself; returns MB/s per count (same order) and reports to stderr
+    static double[] sweep(List<File> sessions, int maxThreads, long segmentBytes, long gapNs) {
+        List<Integer> counts = new ArrayList<>();
+        for (int n = 1; n < maxThreads; n *= 2) counts.add(n);
+        counts.add(maxThreads);
+        long bytes = 0;
+        for (File dir : sessions) {
+            bytes += new File(dir, CsvFormat.GNSS_FILE).length() + new File(dir, CsvFormat.SENSORS_FILE).length();
+        }
+        run(sessions, maxThreads, segmentBytes, gapNs); // warm-up: JIT and page cache
+        double[] mbps = new double[counts.size()];
+        for (int k = 0; k < counts.size(); k++) {
+            long t0 = System.nanoTime();
+            run(sessions, counts.get(k), segmentBytes, gapNs);
+            mbps[k] = bytes / 1e6 / ((System.nanoTime() - t0) * 1e-9);
+            System.err.println(String.format(Locale.US, "sweep: %2d threads  %8.1f MB/s  speed-up %.2fx",
+                    counts.get(k), mbps[k], mbps[k] / mbps[0]));
+        }
+        return mbps;
+    }
+
+    // Every folder (recursively) that holds at least one of the two logs, sorted so output is stable
+    static List<File> findSessions(List<File> roots) throws IOException {
+        List<File> out = new ArrayList<>();
+        for (File root : roots) {
+            try (Stream<Path> walk = Files.walk(root.toPath())) {
+                out.addAll(walk.filter(Files::isDirectory)
+                        .filter(p -> Files.isRegularFile(p.resolve(CsvFormat.GNSS_FILE))
+                                  || Files.isRegularFile(p.resolve(CsvFormat.SENSORS_FILE)))
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList()));
+            }
+        }
+        return out;
+    }
+
+    private static void usage() {
+        System.err.println("usage: batch [--threads N] [--segment-mb M] [--gap-ms G] [--out summary.csv] [--stats stats.csv] [--sweep] <dir> [<dir> ...]");
+    }
+}
@@ -0,0 +1,93 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project opens one recorded log, reads its header (BOM + delimiter, the same
+conventions SheetLogger writes) and cuts the data rows into byte ranges that can be summarised in parallel.
+For gnss_log.csv the cuts are moved forward to the next EPOCH boundary (ElapsedNs changes) so no epoch is split.
+ */
+
+import com.gnsdata.CsvFormat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+final class CsvSource implements Closeable {
+    final File file;
+    final FileChannel ch; // positional reads are thread-safe, so every segment shares this one channel
+    final String[] header;
+    final char delimiter;
+    final long dataStart; // offset of the first data row (right after the header line)
+    final long size;
+
+    private CsvSource(File file, FileChannel ch, String[] header, char delimiter, long dataStart, long size) {
+        this.file = file;
+        this.ch = ch;
+        this.header = header;
+        this.delimiter = delimiter;
+        this.dataStart = dataStart;
+        this.size = size;
+    }
+
+    // Returns null for a missing/empty file (a session may only have one of the two logs)
+    static CsvSource open(File file) throws IOException {
+        if (!file.isFile() || file.length() == 0) return null;
+        FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        long size = ch.size();
+        RangeLineReader r = new RangeLineReader(ch, 0, size);
+        String first = r.readLine();
+        if (first == null) { ch.close(); return null; }
+        String headerLine = CsvFormat.stripBom(first);
+        char delim = CsvFormat.detectDelimiter(headerLine);
+        return new CsvSource(file, ch, CsvFormat.splitRow(headerLine, delim), delim, r.position(), size);
+    }
+
+    /*
+        Cut [dataStart, size) into ranges of about targetBytes.
+        Returns the boundaries: b[0] = dataStart, b[last] = size, segment i is [b[i], b[i+1]).
+        keyCol >= 0 → move each cut forward until the value in that column changes (epoch aligned).
+     */
+    long[] boundaries(long targetBytes, int keyCol) throws IOException {
+        List<Long> cuts = new ArrayList<>();
+        cuts.add(dataStart);
+        long p = dataStart + targetBytes;
+        while (p < size) {
+            long b = alignedCut(p, keyCol);
+            if (b >= size) break;
+            if (b > cuts.get(cuts.size() - 1)) cuts.add(b);
+            p = b + targetBytes;
+        }
+        cuts.add(size);
+        long[] out = new long[cuts.size()];
+        for (int i = 0; i < out.length; i++) out[i] = cuts.get(i);
+        return out;
+    }
+
+    // First line start at/after p where the key column differs from the line before it
+    private long alignedCut(long p, int keyCol) throws IOException {
+        RangeLineReader r = new RangeLineReader(ch, p - 1, size);
+        r.skipPartialLine(); // starting one byte early means a cut exactly at a line start is kept
+        long start = r.position();
+        if (keyCol < 0) return start;
+        String line = r.readLine();
+        if (line == null) return size;
+        String key = cellAt(line, keyCol);
+        while ((line = r.readLine()) != null) {
+            if (!key.equals(cellAt(line, keyCol))) return r.lineStart();
+        }
+        return size;
+    }
+
+    private String cellAt(String line, int col) {
+        String[] cells = CsvFormat.splitRow(line, delimiter);
+        return col < cells.length ? cells[col] : "";
+    }
+
+    @Override
+    public void close() throws IOException { ch.close(); }
+}
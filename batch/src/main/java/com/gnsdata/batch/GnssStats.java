@@ -0,0 +1,123 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project summarises gnss_log.csv rows: satellite counts, how often TDCP was
+available, and gaps between epochs, plus per-satellite running statistics (SessionStats, same as the phone's). An "epoch" is a run of rows sharing the same ElapsedNs (the listener
+stamps every SV of one GnssMeasurementsEvent with the same time), which is why segments are cut there.
+ */
+
+import com.gnsdata.CsvFormat;
+import com.gnsdata.GnssRanging;
+import com.gnsdata.SessionStats;
+
+import java.util.HashMap;
+import java.util.Map;
+
+final class GnssStats implements RowStats<GnssStats> {
+    // Column positions, looked up from the header once per file
+    private final int colElapsed, colConstel, colSvid, colPr, colPrSmoothed, colTdcp, colRate;
+    private final long gapNs; // epochs further apart than this count as a gap
+
+    long rows;
+    long plausiblePrRows; // rows passing the same sanity gate the phone uses
+    long tdcpRows;        // rows with a TDCP value (ADR was valid for two epochs in a row)
+    long epochs;
+    long gaps;
+    long maxGapNs;
+    long firstEpochNs = Long.MIN_VALUE;
+    long lastEpochNs = Long.MIN_VALUE;
+
+    // Per satellite: key = constellation << 16 | svid, value = {rows, tdcpRows}
+    final Map<Integer, long[]> perSat = new HashMap<>();
+
+    // PR − smoothed PR and TDCP rate per satellite, satellites per epoch (merged the same associative way)
+    final SessionStats values = new SessionStats();
+
+    GnssStats(String[] header, long gapNs) {
+        this.colElapsed = CsvFormat.columnOf(header, "ElapsedNs");
+        this.colConstel = CsvFormat.columnOf(header, "Constellation");
+        this.colSvid = CsvFormat.columnOf(header, "Svid");
+        this.colPr = CsvFormat.columnOf(header, "Pseudorange_m");
+        this.colPrSmoothed = CsvFormat.columnOf(header, "Pseudorange_smoothed_m");
+        this.colTdcp = CsvFormat.columnOf(header, "TDCP_m");
+        this.colRate = CsvFormat.columnOf(header, "TDCP_rate_mps");
+        this.gapNs = gapNs;
+    }
+
+    static int satKey(int constellation, int svid) { return (constellation << 16) | (svid & 0xFFFF); }
+
+    @Override
+    public void accept(String[] cells) {
+        long t = CsvFormat.parseLong(cell(cells, colElapsed), Long.MIN_VALUE);
+        if (t == Long.MIN_VALUE) return; // malformed row, skip it
+        rows++;
+
+        // New epoch?
+        if (t != lastEpochNs) {
+            if (lastEpochNs != Long.MIN_VALUE) {
+                noteStep(t - lastEpochNs);
+                values.onEpoch();
+            }
+            if (firstEpochNs == Long.MIN_VALUE) firstEpochNs = t;
+            lastEpochNs = t;
+            epochs++;
+        }
+
+        Double pr = CsvFormat.parseDouble(cell(cells, colPr));
+        if (pr != null && GnssRanging.isPlausible(pr)) plausiblePrRows++;
+        boolean hasTdcp = CsvFormat.parseDouble(cell(cells, colTdcp)) != null;
+        if (hasTdcp) tdcpRows++;
+
+        int constellation = (int) CsvFormat.parseLong(cell(cells, colConstel), 0);
+        int svid = (int) CsvFormat.parseLong(cell(cells, colSvid), 0);
+        Double prSmoothed = CsvFormat.parseDouble(cell(cells, colPrSmoothed));
+        if (pr != null) {
+            // Older logs have no smoothed column: PR − smoothed is then 0, the TDCP stats still count
+            values.onSatellite(constellation, svid, pr, prSmoothed != null ? prSmoothed : pr,
+                    CsvFormat.parseDouble(cell(cells, colRate)), t);
+        }
+
+        int key = satKey(constellation, svid);
+        long[] c = perSat.get(key);
+        if (c == null) { c = new long[2]; perSat.put(key, c); }
+        c[0]++;
+        if (hasTdcp) c[1]++;
+    }
+
+    @Override
+    public GnssStats merge(GnssStats later) {
+        if (later.epochs == 0) return this;
+        if (epochs == 0) return later;
+        // The step across the segment boundary is only visible here
+        noteStep(later.firstEpochNs - lastEpochNs);
+        rows += later.rows;
+        plausiblePrRows += later.plausiblePrRows;
+        tdcpRows += later.tdcpRows;
+        epochs += later.epochs;
+        gaps += later.gaps;
+        maxGapNs = Math.max(maxGapNs, later.maxGapNs);
+        lastEpochNs = later.lastEpochNs;
+        values.merge(later.values);
+        for (Map.Entry<Integer, long[]> e : later.perSat.entrySet()) {
+            long[] c = perSat.get(e.getKey());
+            if (c == null) { perSat.put(e.getKey(), e.getValue().clone()); continue; }
+            c[0] += e.getValue()[0];
+            c[1] += e.getValue()[1];
+        }
+        return this;
+    }
+
+    // TDCP rows / all rows (0 when empty)
+    double tdcpAvailability() { return rows == 0 ? 0.0 : (double) tdcpRows / rows; }
+
+    // Satellites seen per epoch, on average
+    double meanSatsPerEpoch() { return epochs == 0 ? 0.0 : (double) rows / epochs; }
+
+    private void noteStep(long stepNs) {
+        if (stepNs > gapNs) gaps++;
+        if (stepNs > maxGapNs) maxGapNs = stepNs;
+    }
+
+    private static String cell(String[] cells, int i) { return (i >= 0 && i < cells.length) ? cells[i] : null; }
+}
@@ -0,0 +1,79 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project reads the lines of ONE byte range [start, end) of a CSV file.
+It keeps a small fixed buffer, so memory stays bounded no matter how big the log is, and it tracks the
+byte offset of every line so the splitter can cut files exactly at line (and epoch) boundaries.
+A line belongs to the range if it STARTS before end; it may finish past end.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+final class RangeLineReader {
+    private static final int CHUNK = 64 * 1024;
+
+    private final FileChannel ch;
+    private final long end;
+    private final ByteBuffer buf = ByteBuffer.allocate(CHUNK);
+    private byte[] line = new byte[256]; // grows if a row is longer (rows are ~100 bytes)
+
+    private long pos;        // file offset of the next unread byte
+    private long lineStart;  // file offset of the line returned last
+
+    RangeLineReader(FileChannel ch, long start, long end) {
+        this.ch = ch;
+        this.end = end;
+        this.pos = start;
+        buf.limit(0); // empty until the first fill
+    }
+
+    // Offset of the line returned by the last readLine()
+    long lineStart() { return lineStart; }
+
+    // Offset where the next line starts (used by the splitter)
+    long position() { return pos; }
+
+    // When a range begins mid-line, throw away the partial line so we start on a real row
+    void skipPartialLine() throws IOException {
+        int b;
+        while ((b = nextByte()) >= 0) {
+            if (b == '\n') return;
+        }
+    }
+
+    // Next full line (without the \n), or null at the end of the range / file
+    String readLine() throws IOException {
+        if (pos >= end) return null;
+        lineStart = pos;
+        int n = 0;
+        int b;
+        boolean any = false;
+        while ((b = nextByte()) >= 0) {
+            any = true;
+            if (b == '\n') break;
+            if (n == line.length) {
+                byte[] bigger = new byte[line.length * 2];
+                System.arraycopy(line, 0, bigger, 0, n);
+                line = bigger;
+            }
+            line[n++] = (byte) b;
+        }
+        if (!any) return null;
+        return new String(line, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private int nextByte() throws IOException {
+        if (!buf.hasRemaining()) {
+            buf.clear();
+            int read = ch.read(buf, pos);
+            buf.flip();
+            if (read <= 0) return -1;
+        }
+        pos++;
+        return buf.get() & 0xFF;
+    }
+}
@@ -0,0 +1,16 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the small contract every per-segment summary follows.
+Segments are summarised in parallel and then merged left-to-right, so merge() must be associative:
+(a.merge(b)).merge(c) has to give the same answer as a.merge(b.merge(c)).
+ */
+
+interface RowStats<S extends RowStats<S>> {
+    // Fold one parsed CSV row (already split into cells) into the running summary
+    void accept(String[] cells);
+
+    // Combine with the summary of the segment that comes right AFTER this one in the file
+    S merge(S later);
+}
@@ -0,0 +1,45 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the fork/join leaf: stream one byte range of one log through a
+fresh RowStats. Nothing but the current line is held in memory.
+ */
+
+import com.gnsdata.CsvFormat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+final class SegmentTask<S extends RowStats<S>> extends RecursiveTask<S> {
+    private static final long serialVersionUID = 1L;
+
+    private final CsvSource src;
+    private final long start, end;
+    private final Supplier<S> factory;
+
+    SegmentTask(CsvSource src, long start, long end, Supplier<S> factory) {
+        this.src = src;
+        this.start = start;
+        this.end = end;
+        this.factory = factory;
+    }
+
+    @Override
+    protected S compute() {
+        S stats = factory.get();
+        RangeLineReader r = new RangeLineReader(src.ch, start, end);
+        try {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isEmpty() || line.equals("\r")) continue;
+                stats.accept(CsvFormat.splitRow(line, src.delimiter));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(src.file.getPath(), e);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,144 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project summarises sensors_log.csv rows: how many rows, how many had each
+sensor filled in, gaps between consecutive rows, and
+count/mean/std/min/max per channel plus sample timing per sensor (SessionStats). The rows are sample-and-hold, so a
+sensor's values repeat until that sensor updates; a sensor only goes into SessionStats on the rows where its values
+changed, i.e. once per sample like the phone does (a sample that repeats the previous value exactly is taken as held).
+Every sensor row stands alone, so any line is a valid cut. Only the first segment of a file knows there is nothing
+before it: later segments keep each sensor's first values aside ("head") and merge() decides whether they were a
+new sample or still the value held from the segment before.
+ */
+
+import com.gnsdata.CsvFormat;
+import com.gnsdata.SessionStats;
+
+final class SensorStats implements RowStats<SensorStats> {
+    private final int colElapsed, colBaro, colAccel, colGyro;
+    private final int[] colChannel = new int[SessionStats.SENSOR_CHANNELS.length];
+    private final long gapNs;
+    private final boolean fileStart; // this segment starts right after the header
+
+    // Per sensor (SessionStats.STREAM_*): values of the latest row that had it, and the held-back first sample
+    private final float[][] last = new float[3][3];
+    private final boolean[] seen = new boolean[3];
+    private final float[][] head = new float[3][3];
+    private final long[] headNs = new long[3];
+    private final boolean[] hasHead = new boolean[3];
+    private final float[] v = new float[3];
+
+    long rows;
+    long baroRows, accelRows, gyroRows;
+    long gaps;
+    long maxGapNs;
+    long firstNs = Long.MIN_VALUE;
+    long lastNs = Long.MIN_VALUE;
+
+    final SessionStats values = new SessionStats();
+
+    SensorStats(String[] header, long gapNs, boolean fileStart) {
+        this.fileStart = fileStart;
+        this.colElapsed = CsvFormat.columnOf(header, "ElapsedNs");
+        this.colBaro = CsvFormat.columnOf(header, "Baro_hPa");
+        this.colAccel = CsvFormat.columnOf(header, "Accel_X_mps2");
+        this.colGyro = CsvFormat.columnOf(header, "Gyro_X_radps");
+        this.gapNs = gapNs;
+        for (int c = 0; c < colChannel.length; c++) colChannel[c] = CsvFormat.columnOf(header, SessionStats.SENSOR_CHANNELS[c]);
+    }
+
+    @Override
+    public void accept(String[] cells) {
+        long t = CsvFormat.parseLong(cell(cells, colElapsed), Long.MIN_VALUE);
+        if (t == Long.MIN_VALUE) return;
+        rows++;
+        if (lastNs != Long.MIN_VALUE) noteStep(t - lastNs);
+        if (firstNs == Long.MIN_VALUE) firstNs = t;
+        lastNs = t;
+        if (filled(cells, colBaro)) baroRows++;
+        if (filled(cells, colAccel)) accelRows++;
+        if (filled(cells, colGyro)) gyroRows++;
+        // baro, accel xyz, gyro xyz in SENSOR_CHANNELS order; blank cells come back NaN and are skipped
+        if (filled(cells, colBaro)) sample(SessionStats.STREAM_BARO, cells, 0, 1, t);
+        if (filled(cells, colAccel)) sample(SessionStats.STREAM_ACCEL, cells, 1, 3, t);
+        if (filled(cells, colGyro)) sample(SessionStats.STREAM_GYRO, cells, 4, 3, t);
+    }
+
+    @Override
+    public SensorStats merge(SensorStats later) {
+        if (later.rows == 0) return this;
+        if (rows == 0 && !fileStart) return later;
+        if (rows == 0) firstNs = later.firstNs; // empty first segment: still the one that decides the heads
+        else noteStep(later.firstNs - lastNs);
+        // The later segment's first sample per sensor: new if it differs from what this segment held last
+        for (int k = 0; k < 3; k++) {
+            if (!later.hasHead[k]) continue;
+            if (!seen[k] && !fileStart) {
+                // Nothing of this sensor here either: it's still a head, for whatever comes before us
+                System.arraycopy(later.head[k], 0, head[k], 0, 3);
+                headNs[k] = later.headNs[k];
+                hasHead[k] = true;
+            } else if (!seen[k] || !same(later.head[k], last[k])) {
+                feed(k, later.head[k], later.headNs[k]);
+            }
+        }
+        for (int k = 0; k < 3; k++) {
+            if (!later.seen[k]) continue;
+            System.arraycopy(later.last[k], 0, last[k], 0, 3);
+            seen[k] = true;
+        }
+        rows += later.rows;
+        baroRows += later.baroRows;
+        accelRows += later.accelRows;
+        gyroRows += later.gyroRows;
+        gaps += later.gaps;
+        maxGapNs = Math.max(maxGapNs, later.maxGapNs);
+        lastNs = later.lastNs;
+        values.merge(later.values);
+        return this;
+    }
+
+    // One row that has sensor k: into SessionStats if its values changed (or held back as this segment's head)
+    private void sample(int k, String[] cells, int firstChannel, int n, long t) {
+        for (int i = 0; i < 3; i++) v[i] = (i < n) ? value(cells, colChannel[firstChannel + i]) : 0f;
+        if (!seen[k]) {
+            if (fileStart) {
+                feed(k, v, t);
+            } else {
+                System.arraycopy(v, 0, head[k], 0, 3);
+                headNs[k] = t;
+                hasHead[k] = true;
+            }
+        } else if (!same(v, last[k])) {
+            feed(k, v, t);
+        }
+        System.arraycopy(v, 0, last[k], 0, 3);
+        seen[k] = true;
+    }
+
+    private void feed(int k, float[] x, long t) {
+        if (k == SessionStats.STREAM_BARO) values.onBarometer(x[0], t);
+        else if (k == SessionStats.STREAM_ACCEL) values.onAccel(x[0], x[1], x[2], t);
+        else values.onGyro(x[0], x[1], x[2], t);
+    }
+
+    // Bit-for-bit, so two blank (NaN) cells count as the same value
+    private static boolean same(float[] a, float[] b) {
+        for (int i = 0; i < 3; i++) if (Float.floatToIntBits(a[i]) != Float.floatToIntBits(b[i])) return false;
+        return true;
+    }
+
+    private void noteStep(long stepNs) {
+        if (stepNs > gapNs) gaps++;
+        if (stepNs > maxGapNs) maxGapNs = stepNs;
+    }
+
+    private static float value(String[] cells, int i) {
+        Double d = CsvFormat.parseDouble(cell(cells, i));
+        return d == null ? Float.NaN : d.floatValue();
+    }
+
+    private static boolean filled(String[] cells, int i) { return i >= 0 && i < cells.length && !cells[i].isEmpty(); }
+    private static String cell(String[] cells, int i) { return (i >= 0 && i < cells.length) ? cells[i] : null; }
+}
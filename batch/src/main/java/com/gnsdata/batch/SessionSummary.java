@@ -0,0 +1,75 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the merged result for ONE session folder (one gnss/sensors pair),
+plus the code that turns it into one row of the batch summary CSV.
+ */
+
+import com.gnsdata.CsvFormat;
+import com.gnsdata.SessionStats;
+
+final class SessionSummary {
+    static final String[] HEADER = {
+            "Session",
+            "Gnss_rows", "Epochs", "Satellites", "Mean_sats_per_epoch",
+            "Plausible_PR_pct", "TDCP_availability_pct",
+            "Gnss_gaps", "Max_gnss_gap_s", "Gnss_span_s",
+            "Sensor_rows", "Baro_rows", "Accel_rows", "Gyro_rows",
+            "Sensor_gaps", "Max_sensor_gap_s", "Sensor_span_s",
+            "Segments", "Error"
+    };
+
+    final String session;
+    final GnssStats gnss;      // null if the session has no gnss_log.csv
+    final SensorStats sensors; // null if the session has no sensors_log.csv
+    final int segments;
+    final String error;        // null when everything was read fine
+
+    SessionSummary(String session, GnssStats gnss, SensorStats sensors, int segments, String error) {
+        this.session = session;
+        this.gnss = gnss;
+        this.sensors = sensors;
+        this.segments = segments;
+        this.error = error;
+    }
+
+    Object[] toRow() {
+        boolean g = gnss != null && gnss.rows > 0;
+        boolean s = sensors != null && sensors.rows > 0;
+        return new Object[] {
+                session,
+                g ? gnss.rows : null, g ? gnss.epochs : null, g ? gnss.perSat.size() : null,
+                g ? gnss.meanSatsPerEpoch() : null,
+                g ? 100.0 * gnss.plausiblePrRows / gnss.rows : null,
+                g ? 100.0 * gnss.tdcpAvailability() : null,
+                g ? gnss.gaps : null, g ? gnss.maxGapNs * 1e-9 : null,
+                g ? (gnss.lastEpochNs - gnss.firstEpochNs) * 1e-9 : null,
+                s ? sensors.rows : null, s ? sensors.baroRows : null, s ? sensors.accelRows : null, s ? sensors.gyroRows : null,
+                s ? sensors.gaps : null, s ? sensors.maxGapNs * 1e-9 : null,
+                s ? (sensors.lastNs - sensors.firstNs) * 1e-9 : null,
+                segments, error
+        };
+    }
+
+    // Sensor + satellite statistics of the whole session (empty if neither log could be read)
+    SessionStats stats() {
+        SessionStats all = new SessionStats();
+        if (gnss != null) all.merge(gnss.values);
+        if (sensors != null) all.merge(sensors.values);
+        return all;
+    }
+
+    String toCsvLine(char delimiter) {
+        return join(toRow(), delimiter);
+    }
+
+    static String join(Object[] fields, char delimiter) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) sb.append(delimiter);
+            sb.append(CsvFormat.escapeField(fields[i], delimiter));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package com.gnsdata.batch;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project reprocesses ONE session folder: both logs are cut into segments,
+every segment is forked onto the pool, and the results are merged back in file order.
+ */
+
+import com.gnsdata.CsvFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+final class SessionTask extends RecursiveTask<SessionSummary> {
+    private static final long serialVersionUID = 1L;
+
+    private final File dir;
+    private final String name;
+    private final long segmentBytes;
+    private final long gapNs;
+
+    SessionTask(File dir, String name, long segmentBytes, long gapNs) {
+        this.dir = dir;
+        this.name = name;
+        this.segmentBytes = segmentBytes;
+        this.gapNs = gapNs;
+    }
+
+    @Override
+    protected SessionSummary compute() {
+        CsvSource gnssSrc = null;
+        CsvSource sensorSrc = null;
+        try {
+            gnssSrc = CsvSource.open(new File(dir, CsvFormat.GNSS_FILE));
+            sensorSrc = CsvSource.open(new File(dir, CsvFormat.SENSORS_FILE));
+
+            List<SegmentTask<GnssStats>> gTasks = new ArrayList<>();
+            if (gnssSrc != null) {
+                final String[] header = gnssSrc.header;
+                // Cut only where ElapsedNs changes so each epoch stays in one segment
+                long[] b = gnssSrc.boundaries(segmentBytes, CsvFormat.columnOf(header, "ElapsedNs"));
+                for (int i = 0; i + 1 < b.length; i++) {
+                    gTasks.add(new SegmentTask<>(gnssSrc, b[i], b[i + 1], () -> new GnssStats(header, gapNs)));
+                }
+            }
+            List<SegmentTask<SensorStats>> sTasks = new ArrayList<>();
+            if (sensorSrc != null) {
+                final String[] header = sensorSrc.header;
+                long[] b = sensorSrc.boundaries(segmentBytes, -1);
+                for (int i = 0; i + 1 < b.length; i++) {
+                    final boolean fileStart = (i == 0);
+                    sTasks.add(new SegmentTask<>(sensorSrc, b[i], b[i + 1], () -> new SensorStats(header, gapNs, fileStart)));
+                }
+            }
+
+            List<RecursiveTask<?>> all = new ArrayList<>(gTasks);
+            all.addAll(sTasks);
+            invokeAll(all);
+
+            GnssStats g = null;
+            for (SegmentTask<GnssStats> t : gTasks) g = (g == null) ? t.join() : g.merge(t.join());
+            SensorStats s = null;
+            for (SegmentTask<SensorStats> t : sTasks) s = (s == null) ? t.join() : s.merge(t.join());
+            return new SessionSummary(name, g, s, all.size(), null);
+        } catch (IOException | RuntimeException e) {
+            // One broken session shouldn't sink the whole batch; report it in the summary instead
+            return new SessionSummary(name, null, null, 0, String.valueOf(e.getMessage()));
+        } finally {
+            closeQuietly(gnssSrc);
+            closeQuietly(sensorSrc);
+        }
+    }
+
+    private static void closeQuietly(CsvSource src) {
+        try { if (src != null) src.close(); } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,128 @@
+package com.gnsdata.batch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.gnsdata.CsvFormat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.FileOutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cutting a session into many small segments must give exactly the same summary as reading it in one go.
+ */
+public class BatchReprocessTest {
+    private static final long GPS0 = 1_440_000_000_000_000_000L; // GPST − elapsed (~2025)
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void segmentedSummaryMatchesSinglePass() throws IOException {
+        File dir = tmp.newFolder("session1");
+        writeSession(dir, ';', 300);
+
+        SessionSummary one = only(BatchReprocess.run(Collections.singletonList(dir), 1, Long.MAX_VALUE / 4, BatchReprocess.DEFAULT_GAP_NS));
+        SessionSummary many = only(BatchReprocess.run(Collections.singletonList(dir), 4, 512, BatchReprocess.DEFAULT_GAP_NS));
+
+        assertNull(many.error);
+        assertEquals(2, one.segments); // one gnss + one sensor segment
+        assertTrue(many.segments > 20);
+        assertEquals(300, many.gnss.epochs);
+        assertEquals(300 * 8, many.gnss.rows);
+        assertEquals(8, many.gnss.perSat.size());
+        assertEquals(1, many.gnss.gaps); // the 5 s hole at epoch 150
+        assertEquals(600, many.sensors.rows);
+        assertEquals(1, many.sensors.gaps);
+
+        Object[] a = one.toRow();
+        Object[] b = many.toRow();
+        for (int i = 1; i < a.length - 2; i++) assertEquals(SessionSummary.HEADER[i], a[i], b[i]);
+
+        // Running stats merged over 20+ segments == one pass (up to floating-point rounding)
+        List<Object[]> sa = one.stats().summaryRows();
+        List<Object[]> sb = many.stats().summaryRows();
+        // session + 7 channels + 3 timing rows per sensor + 5 rows per satellite
+        assertEquals(1 + 7 + 3 * 3 + 8 * 5, sa.size());
+        assertEquals(sa.size(), sb.size());
+        for (int r = 0; r < sa.size(); r++) {
+            for (int c = 0; c < sa.get(r).length; c++) {
+                Object x = sa.get(r)[c], y = sb.get(r)[c];
+                if (x instanceof Double) assertEquals((Double) x, (Double) y, 1e-9);
+                else assertEquals(x, y);
+            }
+        }
+        assertEquals(8.0, (Double) sa.get(0)[5], 0.0); // 8 satellites in every epoch
+
+        // Sample-and-hold rows count once per sensor update, like the phone's stats (not once per row)
+        com.gnsdata.SessionStats stats = many.stats();
+        for (int k = 0; k < 3; k++) {
+            assertEquals(com.gnsdata.SessionStats.SENSOR_STREAMS[k], 300, stats.timing(k).samples);
+            assertEquals(com.gnsdata.SessionStats.SENSOR_STREAMS[k], 1, stats.timing(k).gaps);
+        }
+        assertEquals(1.0, stats.timing(com.gnsdata.SessionStats.STREAM_ACCEL).intervalMs.min() / 1000, 1e-9);
+    }
+
+    @Test
+    public void threadSweepReportsThroughput() throws IOException {
+        List<File> sessions = new java.util.ArrayList<>();
+        for (int k = 0; k < 8; k++) {
+            File dir = tmp.newFolder("sweep" + k);
+            writeSession(dir, ',', 2000);
+            sessions.add(dir);
+        }
+        int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        double[] mbps = BatchReprocess.sweep(sessions, maxThreads, 256 * 1024, BatchReprocess.DEFAULT_GAP_NS);
+        for (double v : mbps) assertTrue(v > 0);
+
+        // Any thread count gives the same answer
+        List<SessionSummary> one = BatchReprocess.run(sessions, 1, 256 * 1024, BatchReprocess.DEFAULT_GAP_NS);
+        List<SessionSummary> many = BatchReprocess.run(sessions, maxThreads, 256 * 1024, BatchReprocess.DEFAULT_GAP_NS);
+        for (int k = 0; k < sessions.size(); k++) {
+            assertEquals(one.get(k).toCsvLine(','), many.get(k).toCsvLine(','));
+        }
+    }
+
+    private static SessionSummary only(List<SessionSummary> list) {
+        assertEquals(1, list.size());
+        return list.get(0);
+    }
+
+    // Writes rows the way SheetLogger does: BOM, header, CRLF, Locale.US numbers
+    private static void writeSession(File dir, char d, int epochs) throws IOException {
+        try (Writer g = new OutputStreamWriter(new FileOutputStream(new File(dir, CsvFormat.GNSS_FILE)), StandardCharsets.UTF_8);
+             Writer s = new OutputStreamWriter(new FileOutputStream(new File(dir, CsvFormat.SENSORS_FILE)), StandardCharsets.UTF_8)) {
+            g.write(CsvFormat.BOM);
+            g.write(join(CsvFormat.GNSS_HEADER, d));
+            s.write(CsvFormat.BOM);
+            s.write(join(CsvFormat.SENSORS_HEADER, d));
+            long t = 1_000_000_000L;
+            for (int e = 0; e < epochs; e++) {
+                t += (e == 150) ? 5_000_000_000L : 1_000_000_000L;
+                for (int sv = 1; sv <= 8; sv++) {
+                    String tdcp = (e > 0 && sv % 2 == 0) ? "0.125" : "";
+                    g.write(join(new Object[] {"2025-08-20", "12:00:00.000", t, GPS0 + t, 1, sv, 2.1e7 + sv + (e % 7) * 0.1, 2.1e7 + sv, tdcp, tdcp, 0}, d));
+                }
+                // Sample-and-hold: baro + accel update on the first row, gyro on the second, the rest is held
+                float baro = 1013.2f + (e % 5) * 0.01f, ax = 0.1f + (e % 7) * 0.01f, gx = 0.01f * (1 + e % 3);
+                Object[] held = (e == 0) ? new Object[] {"", "", ""} : new Object[] {0.01f * (1 + (e - 1) % 3), 0.0f, 0.0f};
+                s.write(join(new Object[] {"2025-08-20", "12:00:00.000", t, GPS0 + t, baro, ax, 0.2f, 9.8f, held[0], held[1], held[2]}, d));
+                s.write(join(new Object[] {"2025-08-20", "12:00:00.500", t + 500_000_000L, GPS0 + t + 500_000_000L, baro, ax, 0.2f, 9.8f, gx, 0.0f, 0.0f}, d));
+            }
+        }
+    }
+
+    private static String join(Object[] fields, char d) {
+        return SessionSummary.join(fields, d) + "\r\n";
+    }
+}
@@ -0,0 +1,23 @@
+// Plain JVM module: the GNSS math and CSV glue that has no Android imports, so the app AND the desktop tools can share it.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The sources carry non-ASCII (→, −, ², µ) in comments and strings: don't depend on the build machine's locale
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// The export benchmark runs small by default; scale it up with ./gradlew :core:test -Pgnsdata.exportBenchMb=2048
+tasks.test {
+    project.findProperty("gnsdata.exportBenchMb")?.let { systemProperty("gnsdata.exportBenchMb", it) }
+}
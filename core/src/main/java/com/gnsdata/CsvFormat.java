@@ -0,0 +1,145 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the CSV "glue" shared by SheetLogger (writing rows on the phone)
+and the batch tools (reading the same gnss_log.csv / sensors_log.csv files back later).
+Keeping the headers in one place means the reader and the writer can never drift apart.
+ */
+
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public final class CsvFormat {
+    // File names used under <external files>/logs
+    public static final String SENSORS_FILE = "sensors_log.csv";
+    public static final String GNSS_FILE = "gnss_log.csv";
+    public static final String CLOCK_FILE = "clock_log.csv";
+    public static final String STATS_FILE = "stats_summary.csv";
+    public static final String STATS_STATE_FILE = "stats_summary.state"; // SessionStats.writeTo, for the next run
+
+    // UTF-8 BOM (byte order mark) so Excel detects encoding
+    public static final char BOM = '\uFEFF';
+
+    // Every row carries ElapsedNs (the one clock all data is stamped with); Date/Time and GpsTimeNs (ns since
+    // 1980-01-06, continuous GPST) are derived from it through TimeBase and are blank until it is calibrated
+
+    // One-time, wide columns for sensors
+    public static final String[] SENSORS_HEADER = {
+            "Date", "Time", "ElapsedNs", "GpsTimeNs",
+            "Baro_hPa",
+            "Accel_X_mps2", "Accel_Y_mps2", "Accel_Z_mps2",
+            "Gyro_X_radps", "Gyro_Y_radps", "Gyro_Z_radps"
+    };
+
+    // GNSS per-satellite rows
+    public static final String[] GNSS_HEADER = {
+            "Date", "Time", "ElapsedNs", "GpsTimeNs",
+            "Constellation", "Svid",
+            "Pseudorange_m", "Pseudorange_smoothed_m", "TDCP_m", "TDCP_rate_mps",
+            "ClockFlags"
+    };
+
+    // Receiver clock health, one row per GNSS epoch (see ReceiverClockTracker for the flag bits)
+    public static final String[] CLOCK_HEADER = {
+            "Date", "Time", "ElapsedNs", "GpsTimeNs",
+            "Bias_meas_ns", "Bias_filt_ns", "Drift_nsps",
+            "Bias_sigma_ns", "Drift_sigma_nsps",
+            "HwDiscontinuityCount", "ClockFlags"
+    };
+
+    // Session statistics written at close (see SessionStats); Constellation/Svid are blank for sensor and session rows
+    public static final String[] STATS_HEADER = {
+            "Scope", "Constellation", "Svid", "Channel",
+            "Count", "Mean", "Std", "Min", "Max"
+    };
+
+    private CsvFormat() {} // static helpers only
+
+    // Excel normally wants ';' when decimal separator is ','. So we use , or ; as delim and make it a basic ","
+    public static char defaultExcelDelimiterForLocale() {
+        char decimalSep = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+        return (decimalSep == ',') ? ';' : ',';
+    }
+
+    // Convert Java object into a CSV cell; numbers use Locale.US to ensure '.' decimal point. If Null, leave blank
+    public static String escapeField(Object v, char delimiter) {
+        if (v == null) return "";
+        String s;
+        if (v instanceof Float || v instanceof Double) {
+            s = String.format(Locale.US, "%.9f", ((Number) v).doubleValue());
+            s = s.indexOf('.') >= 0 ? s.replaceAll("0+$", "").replaceAll("\\.$", "") : s;
+        } else {
+            s = String.valueOf(v);
+        }
+        boolean needsQuotes = s.indexOf(delimiter) >= 0 || s.contains("\"") || s.contains("\n") || s.contains("\r");
+        if (needsQuotes) s = "\"" + s.replace("\"", "\"\"") + "\"";
+        return s;
+    }
+
+    public static String toCsv(Float f)  { return f == null ? "" : String.format(Locale.US, "%.6f", f); }
+    public static String toCsv(Double d) { return d == null ? "" : String.format(Locale.US, "%.9f", d); }
+
+    // READING BACK
+
+    // Drop the BOM Excel wanted, if this line has one
+    public static String stripBom(String line) {
+        return (!line.isEmpty() && line.charAt(0) == BOM) ? line.substring(1) : line;
+    }
+
+    // The header never contains numbers, so whichever of ';' / ',' shows up there is the delimiter
+    public static char detectDelimiter(String headerLine) {
+        return headerLine.indexOf(';') >= 0 ? ';' : ',';
+    }
+
+    // Column index by header name, or -1 if the file doesn't have that column
+    public static int columnOf(String[] header, String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (name.equals(header[i])) return i;
+        }
+        return -1;
+    }
+
+    // Split one row back into cells (undoes escapeField: quoted cells, doubled quotes). Trailing CR is ignored.
+    public static String[] splitRow(String line, char delimiter) {
+        List<String> out = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        int n = line.length();
+        if (n > 0 && line.charAt(n - 1) == '\r') n--;
+        for (int i = 0; i < n; i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < n && line.charAt(i + 1) == '"') { cell.append('"'); i++; }
+                    else quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                out.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        out.add(cell.toString());
+        return out.toArray(new String[0]);
+    }
+
+    // Blank cell → null, otherwise a Locale.US number
+    public static Double parseDouble(String cell) {
+        if (cell == null || cell.isEmpty()) return null;
+        try { return Double.parseDouble(cell); } catch (NumberFormatException e) { return null; }
+    }
+
+    // Blank or malformed cell → fallback
+    public static long parseLong(String cell, long fallback) {
+        if (cell == null || cell.isEmpty()) return fallback;
+        try { return Long.parseLong(cell); } catch (NumberFormatException e) { return fallback; }
+    }
+}
@@ -0,0 +1,152 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project defines the binary frames we stream to live consumers (see FrameStreamServer).
+Every frame is length-prefixed so a reader on a TCP stream always knows where the next one starts:
+
+    [int length][byte type][payload ... length - 1 bytes]        (big-endian, Java's ByteBuffer default)
+
+    BARO   (1): long tElapsedNs, float hPa
+    ACCEL  (2): long tElapsedNs, float ax, float ay, float az      (m/s²)
+    GYRO   (3): long tElapsedNs, float gx, float gy, float gz      (rad/s)
+    EPOCH  (4): long tElapsedNs, short count, then count x
+                   byte constellation, short svid, double prMeters, double prSmoothedMeters, byte flags,
+                   double tdcpMeters, double tdcpRateMps
+                   (flags bit 0 = TDCP present; when absent the two doubles are NaN)
+    STATUS (5): UTF-8 text
+    CLOCK  (6): long tElapsedNs, double biasNs, double driftNsPerS, double biasSigmaNs, double driftSigmaNsPerS,
+                int hwDiscontinuityCount, int flags                (see ReceiverClockTracker)
+    NAV    (7): long tElapsedNs, float px, py, pz (m, since the last GNSS epoch), float vx, vy, vz (m/s),
+                float qw, qx, qy, qz (attitude body → nav)       (see StrapdownPropagator)
+
+A whole GNSS epoch goes out as ONE frame (instead of one per satellite) to cut the packet count.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+public final class FrameCodec {
+    public static final byte TYPE_BARO = 1;
+    public static final byte TYPE_ACCEL = 2;
+    public static final byte TYPE_GYRO = 3;
+    public static final byte TYPE_EPOCH = 4;
+    public static final byte TYPE_STATUS = 5;
+    public static final byte TYPE_CLOCK = 6;
+    public static final byte TYPE_NAV = 7;
+
+    public static final int HEADER_BYTES = 4 + 1;           // length + type
+    public static final int SV_BYTES = 1 + 2 + 8 + 8 + 1 + 8 + 8;  // one satellite inside an EPOCH frame
+
+    private FrameCodec() {} // static helpers only
+
+    public static ByteBuffer baro(long tElapsedNs, float hPa) {
+        ByteBuffer b = begin(TYPE_BARO, 8 + 4);
+        b.putLong(tElapsedNs).putFloat(hPa);
+        return finish(b);
+    }
+
+    public static ByteBuffer vec3(byte type, long tElapsedNs, float x, float y, float z) {
+        ByteBuffer b = begin(type, 8 + 12);
+        b.putLong(tElapsedNs).putFloat(x).putFloat(y).putFloat(z);
+        return finish(b);
+    }
+
+    public static ByteBuffer status(String text) {
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer b = begin(TYPE_STATUS, utf8.length);
+        b.put(utf8);
+        return finish(b);
+    }
+
+    public static ByteBuffer clock(long tElapsedNs, double biasNs, double driftNsPerS,
+                                   double biasSigmaNs, double driftSigmaNsPerS, int discontinuityCount, int flags) {
+        ByteBuffer b = begin(TYPE_CLOCK, 8 + 4 * 8 + 4 + 4);
+        b.putLong(tElapsedNs).putDouble(biasNs).putDouble(driftNsPerS).putDouble(biasSigmaNs).putDouble(driftSigmaNsPerS)
+                .putInt(discontinuityCount).putInt(flags);
+        return finish(b);
+    }
+
+    public static ByteBuffer nav(long tElapsedNs, double px, double py, double pz,
+                                 double vx, double vy, double vz,
+                                 double qw, double qx, double qy, double qz) {
+        ByteBuffer b = begin(TYPE_NAV, 8 + 10 * 4);
+        b.putLong(tElapsedNs)
+                .putFloat((float) px).putFloat((float) py).putFloat((float) pz)
+                .putFloat((float) vx).putFloat((float) vy).putFloat((float) vz)
+                .putFloat((float) qw).putFloat((float) qx).putFloat((float) qy).putFloat((float) qz);
+        return finish(b);
+    }
+
+    // Collects the per-satellite rows of one epoch (primitive arrays, reused epoch after epoch) and encodes them in one frame
+    public static final class EpochBatch {
+        private int n;
+        private byte[] constel = new byte[64];
+        private short[] svid = new short[64];
+        private double[] pr = new double[64];
+        private double[] prSmoothed = new double[64];
+        private double[] tdcp = new double[64];
+        private double[] rate = new double[64];
+
+        public int size() { return n; }
+
+        public void add(int constellation, int sv, double prMeters, double prSmoothedMeters,
+                        Double tdcpMeters, Double tdcpRateMps) {
+            if (n == pr.length) grow();
+            constel[n] = (byte) constellation;
+            svid[n] = (short) sv;
+            pr[n] = prMeters;
+            prSmoothed[n] = prSmoothedMeters;
+            tdcp[n] = tdcpMeters == null ? Double.NaN : tdcpMeters;
+            rate[n] = tdcpRateMps == null ? Double.NaN : tdcpRateMps;
+            n++;
+        }
+
+        // Encode everything collected so far as one EPOCH frame and start over
+        public ByteBuffer drain(long tElapsedNs) {
+            ByteBuffer b = begin(TYPE_EPOCH, 8 + 2 + n * SV_BYTES);
+            b.putLong(tElapsedNs).putShort((short) n);
+            for (int i = 0; i < n; i++) {
+                boolean has = !Double.isNaN(tdcp[i]);
+                b.put(constel[i]).putShort(svid[i]).putDouble(pr[i]).putDouble(prSmoothed[i])
+                        .put((byte) (has ? 1 : 0)).putDouble(tdcp[i]).putDouble(rate[i]);
+            }
+            n = 0;
+            return finish(b);
+        }
+
+        private void grow() {
+            int cap = pr.length * 2;
+            constel = Arrays.copyOf(constel, cap);
+            svid = Arrays.copyOf(svid, cap);
+            pr = Arrays.copyOf(pr, cap);
+            prSmoothed = Arrays.copyOf(prSmoothed, cap);
+            tdcp = Arrays.copyOf(tdcp, cap);
+            rate = Arrays.copyOf(rate, cap);
+        }
+    }
+
+    // READING (consumers): frames start with the length, then type; tElapsedNs is the first field of every data frame
+
+    // Bytes needed for the whole frame whose length prefix starts at buf.position(), or -1 if not even the prefix is there
+    public static int frameSize(ByteBuffer buf) {
+        if (buf.remaining() < 4) return -1;
+        return 4 + buf.getInt(buf.position());
+    }
+
+    public static byte type(ByteBuffer frame) { return frame.get(frame.position() + 4); }
+
+    public static long elapsedNs(ByteBuffer frame) { return frame.getLong(frame.position() + HEADER_BYTES); }
+
+    private static ByteBuffer begin(byte type, int payload) {
+        ByteBuffer b = ByteBuffer.allocate(HEADER_BYTES + payload);
+        b.putInt(1 + payload).put(type);
+        return b;
+    }
+
+    private static ByteBuffer finish(ByteBuffer b) {
+        b.flip();
+        return b;
+    }
+}
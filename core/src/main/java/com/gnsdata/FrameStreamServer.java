@@ -0,0 +1,284 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project streams FrameCodec frames to any number of TCP subscribers on a local port.
+    - One NIO thread (Selector, non-blocking channels) does all the socket work, so publish() never blocks the capture thread
+    - Every subscriber has its own BOUNDED queue; if a consumer is too slow its queue fills and new frames are DROPPED
+      (and counted) for that subscriber only, everyone else keeps getting everything
+    - The writer gathers several queued frames into one write() call, so bursts turn into few packets
+The frames are raw GNSS/IMU data (i.e. the phone's location), and any app on the phone can open a loopback socket,
+so a subscriber must send the session's token (newToken(): 32 hex characters, ASCII) before it gets anything.
+A wrong token closes the connection. The port is ephemeral by default (0 = the kernel picks a free one).
+The constructor does no socket I/O: the NIO thread opens the selector and binds first, then calls onBound.
+On the phone, connect from a computer with: adb forward tcp:<port> tcp:<port>, then send the token
+ */
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class FrameStreamServer {
+    public static final int EPHEMERAL_PORT = 0;
+    public static final int DEFAULT_QUEUE_FRAMES = 4096;
+    private static final int MAX_GATHER = 64; // frames per write() call
+    private static final int TOKEN_BYTES = 16; // sent as 32 hex characters
+
+    private final int queueFrames;
+    private final String token;
+    private final byte[] tokenAscii;
+    private final OnBound onBound;
+    // Opened by the NIO thread (bind happens there); publish() only touches the selector once a subscriber exists
+    private volatile ServerSocketChannel server;
+    private volatile Selector selector;
+    private volatile IOException bindError;
+    private final CountDownLatch bound = new CountDownLatch(1);
+    private final Thread ioThread;
+    private final CopyOnWriteArrayList<Subscriber> subs = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean wakePending = new AtomicBoolean();
+    private volatile boolean running = true;
+
+    // Frames dropped from subscribers that were gone (closed) are not counted, only full queues
+    private final AtomicLong droppedTotal = new AtomicLong();
+    private final AtomicLong publishedTotal = new AtomicLong();
+
+    // Called on the NIO thread once the port is bound, or the bind failed (port() == -1, see bindError())
+    public interface OnBound {
+        void onBound(FrameStreamServer server);
+    }
+
+    // Per-subscriber state: queue is filled by the producer, drained by the NIO thread
+    private static final class Subscriber {
+        final SocketChannel ch;
+        final ByteBuffer auth; // the token as it arrives; the subscriber only joins `subs` once it matches
+        final ArrayBlockingQueue<ByteBuffer> queue;
+        final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+        int gatherFrom, gatherTo; // frames taken from the queue but not fully written yet
+        final AtomicLong dropped = new AtomicLong();
+        long sentFrames;
+
+        Subscriber(SocketChannel ch, int capacity, int tokenLength) {
+            this.ch = ch;
+            this.auth = ByteBuffer.allocate(tokenLength);
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    /*
+        Starts the NIO thread, which binds 127.0.0.1:port (EPHEMERAL_PORT = pick a free port) and then accepts
+        subscribers that send `token`. Returns right away, so it is fine on the UI thread; onBound may be null.
+     */
+    public FrameStreamServer(int port, int queueFrames, String token, OnBound onBound) {
+        this.queueFrames = queueFrames;
+        this.token = token;
+        this.tokenAscii = token.getBytes(StandardCharsets.US_ASCII);
+        this.onBound = onBound;
+        this.ioThread = new Thread(() -> {
+            if (bind(port)) loop();
+        }, "GNSData-Stream");
+        ioThread.setDaemon(true);
+        ioThread.start();
+    }
+
+    public FrameStreamServer(int port, int queueFrames, String token) { this(port, queueFrames, token, null); }
+
+    // A fresh random token for one session (32 hex characters)
+    public static String newToken() {
+        byte[] b = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(b);
+        StringBuilder sb = new StringBuilder(2 * TOKEN_BYTES);
+        for (byte x : b) sb.append(String.format(Locale.US, "%02x", x & 0xFF));
+        return sb.toString();
+    }
+
+    public String token() { return token; }
+
+    // The bound port; waits for the bind if it hasn't happened yet, -1 if it failed (see bindError())
+    public int port() {
+        try {
+            bound.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+        return bindError != null ? -1 : server.socket().getLocalPort();
+    }
+
+    public IOException bindError() { return bindError; }
+    public int subscriberCount() { return subs.size(); }
+    public long publishedFrames() { return publishedTotal.get(); }
+    public long droppedFrames() { return droppedTotal.get(); }
+
+    // Producer side (capture thread): never blocks, a full queue means that subscriber loses this frame
+    public void publish(ByteBuffer frame) {
+        publishedTotal.incrementAndGet();
+        if (subs.isEmpty()) return;
+        for (Subscriber s : subs) {
+            // duplicate() shares the bytes but gives each subscriber its own position
+            if (!s.queue.offer(frame.duplicate())) {
+                s.dropped.incrementAndGet();
+                droppedTotal.incrementAndGet();
+            }
+        }
+        // One wakeup per batch of publishes, not one per frame
+        if (wakePending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    // One line per subscriber: address, frames sent, frames dropped, frames waiting
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Subscriber s : subs) {
+            String addr;
+            try { addr = String.valueOf(s.ch.getRemoteAddress()); } catch (IOException e) { addr = "?"; }
+            sb.append(addr).append(" sent=").append(s.sentFrames)
+              .append(" dropped=").append(s.dropped.get())
+              .append(" queued=").append(s.queue.size()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    public void close() {
+        running = false;
+        Selector sel = selector; // null if the NIO thread hasn't opened it yet: then it sees running == false
+        if (sel != null) sel.wakeup();
+        try { ioThread.join(1000); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        sel = selector;
+        if (sel != null && sel.isOpen()) {
+            // Every connection has a key, including the ones that never sent the token
+            for (SelectionKey k : sel.keys()) {
+                if (k.attachment() instanceof Subscriber) closeQuietly((Subscriber) k.attachment());
+            }
+        }
+        subs.clear();
+        try { if (server != null) server.close(); } catch (IOException ignored) {}
+        try { if (sel != null) sel.close(); } catch (IOException ignored) {}
+    }
+
+    // NIO THREAD
+
+    // Open the selector and bind; on failure remember why and leave the thread. onBound either way
+    private boolean bind(int port) {
+        try {
+            selector = Selector.open();
+            ServerSocketChannel ch = ServerSocketChannel.open();
+            server = ch;
+            ch.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            ch.configureBlocking(false);
+            ch.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            bindError = e;
+        }
+        bound.countDown();
+        if (onBound != null) onBound.onBound(this);
+        return bindError == null && running;
+    }
+
+    private void loop() {
+        ByteBuffer scratch = ByteBuffer.allocate(256); // subscribers don't send us anything useful; we just notice EOF
+        while (running) {
+            try {
+                selector.select();
+                wakePending.set(false);
+
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey k = it.next();
+                    it.remove();
+                    if (!k.isValid()) continue;
+                    if (k.isAcceptable()) accept();
+                    else {
+                        Subscriber s = (Subscriber) k.attachment();
+                        if (k.isReadable()) {
+                            if (s.auth.hasRemaining()) {
+                                if (!authenticate(s, k)) continue;
+                            } else {
+                                scratch.clear();
+                                if (s.ch.read(scratch) < 0) { drop(s, k); continue; }
+                            }
+                        }
+                        if (k.isWritable()) write(s, k);
+                    }
+                }
+
+                // Anybody with fresh frames wants OP_WRITE
+                for (Subscriber s : subs) {
+                    SelectionKey k = s.ch.keyFor(selector);
+                    if (k == null || !k.isValid()) continue;
+                    boolean pending = s.gatherFrom < s.gatherTo || !s.queue.isEmpty();
+                    if (pending) write(s, k);
+                }
+            } catch (IOException e) {
+                if (!running) break;
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null) return;
+        ch.configureBlocking(false);
+        ch.socket().setTcpNoDelay(true); // batching happens in the frames, not in Nagle
+        Subscriber s = new Subscriber(ch, queueFrames, tokenAscii.length);
+        ch.register(selector, SelectionKey.OP_READ, s); // no frames until the token is in (authenticate)
+    }
+
+    // Read what has arrived of the token; the subscriber starts getting frames once all of it matches.
+    // Returns false if the connection was dropped (EOF or a wrong token)
+    private boolean authenticate(Subscriber s, SelectionKey k) throws IOException {
+        if (s.ch.read(s.auth) < 0) { drop(s, k); return false; }
+        if (s.auth.hasRemaining()) return true; // wait for the rest
+        if (!MessageDigest.isEqual(s.auth.array(), tokenAscii)) { drop(s, k); return false; } // constant-time compare
+        subs.add(s);
+        return true;
+    }
+
+    // Write as much as the socket takes right now; leave OP_WRITE on if we couldn't finish
+    private void write(Subscriber s, SelectionKey k) {
+        try {
+            while (true) {
+                if (s.gatherFrom == s.gatherTo) {
+                    s.gatherFrom = 0;
+                    s.gatherTo = 0;
+                    ByteBuffer f;
+                    while (s.gatherTo < MAX_GATHER && (f = s.queue.poll()) != null) s.gather[s.gatherTo++] = f;
+                    if (s.gatherTo == 0) break; // nothing left
+                }
+                s.ch.write(s.gather, s.gatherFrom, s.gatherTo - s.gatherFrom);
+                while (s.gatherFrom < s.gatherTo && !s.gather[s.gatherFrom].hasRemaining()) {
+                    s.gather[s.gatherFrom++] = null;
+                    s.sentFrames++;
+                }
+                if (s.gatherFrom < s.gatherTo) break; // socket buffer full, wait for OP_WRITE
+            }
+            boolean more = s.gatherFrom < s.gatherTo;
+            k.interestOps(more ? (SelectionKey.OP_READ | SelectionKey.OP_WRITE) : SelectionKey.OP_READ);
+        } catch (IOException e) {
+            drop(s, k);
+        }
+    }
+
+    private void drop(Subscriber s, SelectionKey k) {
+        k.cancel();
+        subs.remove(s);
+        closeQuietly(s);
+    }
+
+    private static void closeQuietly(Subscriber s) {
+        try { s.ch.close(); } catch (IOException ignored) {}
+    }
+}
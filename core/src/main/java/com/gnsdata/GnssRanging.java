@@ -0,0 +1,82 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project holds the pseudorange math that used to live inline in SensorGnssListener.
+It is plain Java (no android.* imports) so the same code runs on the phone and in the batch tools on a desktop/server.
+ */
+
+public final class GnssRanging {
+    // Constants, constrained at compiletime, immutable
+    public static final double C_MPS = 299_792_458.0; // light speed constant
+    public static final double WEEK_NS = 604800e9; // 604,800 s * e9
+    public static final double DAY_NS = 86400e9; // 86,400 s * 1e9
+
+    // Sanity gate for the pseudorange, keep ~1,000–70,000 km
+    public static final double MIN_PR_METERS = 1.0e6;
+    public static final double MAX_PR_METERS = 7.0e7;
+
+    /* Same numbers as android.location.GnssStatus (copied so this file doesn't need Android)
+        GPS = 1
+        Sbas = 2
+        Glonass = 3
+        Qzss = 4
+        Beidou = 5
+        Galileo = 6
+        IRNSS = 7
+    */
+    public static final int CONSTELLATION_GLONASS = 3;
+    public static final int CONSTELLATION_BEIDOU = 5;
+
+    // Fallback when the hardware doesn't report leap seconds (current value)
+    public static final int DEFAULT_LEAP_SECONDS = 18;
+
+    private GnssRanging() {} // static helpers only
+
+    // Receiver time on the device (hardware) converted to the GPS timescale: continuous GPST in ns
+    public static double receiverGpsNanos(long timeNanos, double fullBiasNs, double biasNs) {
+        return timeNanos - (fullBiasNs + biasNs);
+    }
+
+    // Offset that moves a constellation's own time scale onto GPS time
+    // GPS/QZSS/SBAS: ~0 offset → leave as-is.
+    // Galileo (GST): typically small ns-level offset → ignore here.
+    // BeiDou (BDT): GPST = BDT + 14 s  → add +14 s.
+    // GLONASS (UTC(SU) TOD): GPST = UTC + leapSeconds → add leap seconds.
+    public static double offsetToGpsNanos(int constellation, int leapSeconds) {
+        if (constellation == CONSTELLATION_BEIDOU) return 14.0e9; // 14 seconds
+        if (constellation == CONSTELLATION_GLONASS) return leapSeconds * 1e9;
+        return 0.0;
+    }
+
+    // Choose the modulo window: week for most, day for GLONASS
+    public static double moduloNanos(int constellation) {
+        return (constellation == CONSTELLATION_GLONASS) ? DAY_NS : WEEK_NS;
+    }
+
+    /*
+        Tx time (t_tx) = the time the satellite transmitted the code epoch you’re measuring.
+        Rx time (t_rx) = the time your receiver received that same code epoch (expressed on the GPS time scale after clock-bias correction).
+        Returns the pseudorange in meters: p = (t_rx(GPS) - t_tx(GPS)) * c
+    */
+    public static double pseudorangeMeters(double tRxGpsNanos, double tTxNs, int constellation, int leapSeconds) {
+        double tTxGpsNs = tTxNs + offsetToGpsNanos(constellation, leapSeconds);
+        double moduloNs = moduloNanos(constellation);
+
+        // Fold both receiver and (re-calc'd) transmit times into the same modulo window
+        double tRxTow = tRxGpsNanos % moduloNs; if (tRxTow < 0) tRxTow += moduloNs;
+        double tTxTow = tTxGpsNs    % moduloNs; if (tTxTow < 0) tTxTow += moduloNs;
+
+        // Raw difference and wrap to nearest number to handle rollover between week and day mark
+        double dtNs = tRxTow - tTxTow;
+        if (dtNs >  0.5 * moduloNs) dtNs -= moduloNs;
+        if (dtNs < -0.5 * moduloNs) dtNs += moduloNs;
+
+        return dtNs * 1e-9 * C_MPS;
+    }
+
+    // True if the pseudorange fits the ~1,000–70,000 km sanity window
+    public static boolean isPlausible(double prMeters) {
+        return prMeters >= MIN_PR_METERS && prMeters <= MAX_PR_METERS;
+    }
+}
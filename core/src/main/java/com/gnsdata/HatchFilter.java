@@ -0,0 +1,140 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project smooths pseudoranges with the carrier phase (the Hatch filter).
+The code pseudorange is noisy (meters) but unbiased; the ADR (carrier) is smooth (mm) but only tells us CHANGES in range.
+So each epoch we predict the range from last epoch's smoothed value plus the ADR change, and nudge it toward the new PR:
+
+    smoothed_k = PR_k / n + (smoothed_(k-1) + ΔADR_k) * (n - 1) / n        with n = min(epochs since reset, window)
+
+The filter restarts on anything that breaks the carrier: ADR not valid, ADR reset / cycle slip, a clock discontinuity,
+or the PR landing implausibly far from the prediction (an undetected slip).
+State lives in primitive arrays keyed per SIGNAL (constellation + svid + carrier band), so L1 and L5 of one
+satellite are smoothed separately. Constant time and memory per satellite; nothing is allocated per epoch.
+ */
+
+public final class HatchFilter {
+    public static final int DEFAULT_WINDOW = 100;            // epochs (100 s at 1 Hz)
+    public static final double MAX_DIVERGENCE_METERS = 100.0; // PR further than this from the prediction → restart
+
+    private final int window;
+
+    // Open-addressing hash table: key → slot (linear probing, grows when half full)
+    private long[] keys;
+    private boolean[] used;
+    private double[] smoothed; // meters
+    private double[] lastAdr;  // meters
+    private int[] count;       // epochs since the last restart for this signal (0 = restarting)
+    private int size;
+
+    private int lastCount; // smoothing depth of the value update() returned last
+
+    public HatchFilter(int window) {
+        this.window = Math.max(1, window);
+        alloc(64);
+    }
+
+    public HatchFilter() { this(DEFAULT_WINDOW); }
+
+    public int window() { return window; }
+
+    // How many epochs went into the value update() returned last (1 = raw PR, just restarted)
+    public int lastCount() { return lastCount; }
+
+    // Constellation (8 bits) | svid (16 bits) | carrier in 100 kHz steps (enough to tell L1/L2/L5/E5a/B1 apart)
+    public static long signalKey(int constellation, int svid, double carrierHz) {
+        long band = (carrierHz > 0) ? Math.round(carrierHz / 1e5) : 0;
+        return ((long) (constellation & 0xFF) << 56) | ((long) (svid & 0xFFFF) << 40) | (band & 0xFF_FFFF_FFFFL);
+    }
+
+    /*
+        One epoch for one signal. adrUsable = ADR valid AND no reset/cycle slip reported this epoch.
+        Returns the smoothed pseudorange (equal to prMeters whenever the filter restarts).
+     */
+    public double update(long key, double prMeters, boolean adrUsable, double adrMeters) {
+        int i = slot(key);
+        if (!adrUsable) {
+            count[i] = 0; // carrier broken: next usable epoch starts fresh
+            lastCount = 1;
+            return prMeters;
+        }
+        if (count[i] > 0) {
+            double predicted = smoothed[i] + (adrMeters - lastAdr[i]);
+            if (Math.abs(prMeters - predicted) <= MAX_DIVERGENCE_METERS) {
+                int n = Math.min(count[i] + 1, window);
+                smoothed[i] = prMeters / n + predicted * (n - 1) / n;
+                lastAdr[i] = adrMeters;
+                count[i] = n;
+                lastCount = n;
+                return smoothed[i];
+            }
+            // Too far off: undetected slip or clock jump, fall through and restart
+        }
+        smoothed[i] = prMeters;
+        lastAdr[i] = adrMeters;
+        count[i] = 1;
+        lastCount = 1;
+        return prMeters;
+    }
+
+    // Forget every signal's history (e.g. on a receiver clock discontinuity)
+    public void resetAll() {
+        for (int i = 0; i < count.length; i++) count[i] = 0;
+    }
+
+    // PRIMITIVE HASH TABLE
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        // New signal: claim the slot (grow first if that would make the table more than half full)
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            return slot(key);
+        }
+        used[i] = true;
+        keys[i] = key;
+        count[i] = 0;
+        size++;
+        return i;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        double[] oldSmoothed = smoothed, oldAdr = lastAdr;
+        int[] oldCount = count;
+        alloc(oldKeys.length * 2);
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (!oldUsed[j]) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (used[i]) i = (i + 1) & mask;
+            used[i] = true;
+            keys[i] = oldKeys[j];
+            smoothed[i] = oldSmoothed[j];
+            lastAdr[i] = oldAdr[j];
+            count[i] = oldCount[j];
+            size++;
+        }
+    }
+
+    private void alloc(int capacity) {
+        keys = new long[capacity];
+        used = new boolean[capacity];
+        smoothed = new double[capacity];
+        lastAdr = new double[capacity];
+        count = new int[capacity];
+        size = 0;
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,169 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project follows the receiver clock from one GnssClock to the next.
+    - A tiny 2-state Kalman filter (bias in ns, drift in ns/s) with primitive fields only: constant cost per epoch, no allocations
+    - Flags an epoch when the hardware clock had a discontinuity (HardwareClockDiscontinuityCount changed, or TimeNanos
+      went backwards), when FullBias+Bias jumps away from where the drift says it should be, or when there is no FullBias
+    - The listener clears its ADR history on a discontinuity, so TDCP never differences across a clock reset
+Every epoch's result is logged (clock_log.csv) so solvers can skip bad epochs without re-scanning the files.
+
+Why the bias matters: t_rx(GPS) = timeNanos - (fullBias + bias), so a 1 µs bias error is ~300 m on every pseudorange.
+ */
+
+public final class ReceiverClockTracker {
+    // Flags (bitmask); 0 means the epoch looks healthy, WARMUP alone is informational
+    public static final int FLAG_HW_DISCONTINUITY = 1; // hardware clock reset / TimeNanos went backwards
+    public static final int FLAG_BIAS_JUMP = 2;        // FullBias+Bias jumped (clock steering, receiver restart)
+    public static final int FLAG_NO_FULL_BIAS = 4;     // no FullBiasNanos: GPS time unknown, pseudoranges meaningless
+    public static final int FLAG_WARMUP = 8;           // filter restarted recently, estimates not settled yet
+
+    // Tuning (ns and ns/s); the noise values suit a phone TCXO
+    private static final double BIAS_NOISE_NS2_PER_S = 1.0;      // white frequency noise
+    private static final double DRIFT_NOISE_NS2_PER_S3 = 100.0;  // drift random walk
+    private static final double MIN_BIAS_VAR_NS2 = 100.0;        // never trust a bias measurement below 10 ns
+    private static final double MIN_DRIFT_VAR = 1.0;             // (ns/s)², floor for DriftUncertainty
+    private static final double GATE_SIGMAS = 5.0;               // innovation gate for a bias jump
+    private static final double MIN_JUMP_NS = 1000.0;            // ...but never call anything under 1 µs a jump
+    private static final double UNKNOWN_DRIFT_VAR = 1e6;         // (ns/s)², i.e. ±1000 ns/s
+    private static final int WARMUP_EPOCHS = 3;
+
+    // Filter state relative to refFullBiasNs (FullBias is ~1e18 ns, far past double's integer precision)
+    private long refFullBiasNs;
+    private double biasNs, driftNsPerS;
+    private double p00, p01, p11; // covariance
+    private boolean initialised;
+    private int epochsSinceReset;
+
+    private long lastTimeNanos;
+    private int lastDiscontinuityCount = Integer.MIN_VALUE;
+
+    // Result of the last update()
+    private int flags;
+    private double measuredBiasNs; // FullBias+Bias relative to the reference
+    private long resets;
+
+    public int flags() { return flags; }
+    public boolean usable() { return usable(flags); }
+    public static boolean usable(int flags) { return (flags & ~FLAG_WARMUP) == 0; }
+
+    // Filtered clock bias as an absolute FullBias+Bias in ns (what you'd subtract from TimeNanos)
+    public double fullBiasNs() { return refFullBiasNs + biasNs; }
+    // Filtered bias relative to the first FullBias after the last reset (small, readable numbers for the CSV)
+    public double biasNs() { return biasNs; }
+    public double measuredBiasNs() { return measuredBiasNs; }
+    public double driftNsPerS() { return driftNsPerS; }
+    public double biasSigmaNs() { return Math.sqrt(p00); }
+    public double driftSigmaNsPerS() { return Math.sqrt(p11); }
+    public long resets() { return resets; }
+
+    /*
+        Feed one GnssClock. Returns the flags for this epoch (also available via flags()).
+        Pass hasX = false for fields the GnssClock doesn't have; their values are then ignored.
+     */
+    public int update(long timeNanos,
+                      boolean hasFullBias, long fullBiasNanos,
+                      boolean hasBias, double biasNanos,
+                      boolean hasBiasUnc, double biasUncNanos,
+                      boolean hasDrift, double driftNanosPerSecond,
+                      boolean hasDriftUnc, double driftUncNanosPerSecond,
+                      int hwDiscontinuityCount) {
+        flags = 0;
+
+        // 1) Hardware clock discontinuity: everything we knew about this clock is void
+        boolean discontinuity = (lastDiscontinuityCount != Integer.MIN_VALUE && hwDiscontinuityCount != lastDiscontinuityCount)
+                || (initialised && timeNanos <= lastTimeNanos);
+        lastDiscontinuityCount = hwDiscontinuityCount;
+        if (discontinuity) {
+            flags |= FLAG_HW_DISCONTINUITY;
+            initialised = false;
+        }
+
+        if (!hasFullBias) {
+            // Can't measure the bias; keep predicting so the drift survives short dropouts
+            flags |= FLAG_NO_FULL_BIAS;
+            if (initialised) predict(timeNanos);
+            lastTimeNanos = timeNanos;
+            return finish();
+        }
+
+        if (!initialised) {
+            reset(timeNanos, fullBiasNanos, hasBias ? biasNanos : 0.0, hasDrift, hasDrift ? driftNanosPerSecond : 0.0,
+                    hasDriftUnc ? driftUncNanosPerSecond : 0.0);
+            return finish();
+        }
+
+        predict(timeNanos);
+        lastTimeNanos = timeNanos;
+
+        // 2) Bias measurement, gated: a big innovation is a jump, not noise
+        measuredBiasNs = (double) (fullBiasNanos - refFullBiasNs) + (hasBias ? biasNanos : 0.0);
+        double r = hasBiasUnc ? Math.max(biasUncNanos * biasUncNanos, MIN_BIAS_VAR_NS2) : MIN_BIAS_VAR_NS2;
+        double innov = measuredBiasNs - biasNs;
+        double s = p00 + r;
+        if (Math.abs(innov) > Math.max(GATE_SIGMAS * Math.sqrt(s), MIN_JUMP_NS)) {
+            flags |= FLAG_BIAS_JUMP;
+            // Clock steering moves the bias, not the oscillator, so the drift we learned carries over
+            reset(timeNanos, fullBiasNanos, hasBias ? biasNanos : 0.0, true, hasDrift ? driftNanosPerSecond : driftNsPerS,
+                    hasDriftUnc ? driftUncNanosPerSecond : Math.sqrt(p11));
+            return finish();
+        }
+        double k0 = p00 / s, k1 = p01 / s;
+        biasNs += k0 * innov;
+        driftNsPerS += k1 * innov;
+        double n00 = (1 - k0) * p00, n01 = (1 - k0) * p01, n11 = p11 - k1 * p01;
+        p00 = n00; p01 = n01; p11 = n11;
+
+        // 3) Drift measurement (if the chipset reports one)
+        if (hasDrift) {
+            double rd = hasDriftUnc ? Math.max(driftUncNanosPerSecond * driftUncNanosPerSecond, MIN_DRIFT_VAR) : MIN_DRIFT_VAR;
+            double innovD = driftNanosPerSecond - driftNsPerS;
+            double sd = p11 + rd;
+            double j0 = p01 / sd, j1 = p11 / sd;
+            biasNs += j0 * innovD;
+            driftNsPerS += j1 * innovD;
+            double m00 = p00 - j0 * p01, m01 = (1 - j1) * p01, m11 = (1 - j1) * p11;
+            p00 = m00; p01 = m01; p11 = m11;
+        }
+        return finish();
+    }
+
+    // Constant-velocity prediction over the local hardware clock interval
+    private void predict(long timeNanos) {
+        double dt = (timeNanos - lastTimeNanos) * 1e-9;
+        if (dt <= 0) return;
+        biasNs += driftNsPerS * dt;
+        double qd = DRIFT_NOISE_NS2_PER_S3;
+        double n00 = p00 + 2 * dt * p01 + dt * dt * p11 + BIAS_NOISE_NS2_PER_S * dt + qd * dt * dt * dt / 3.0;
+        double n01 = p01 + dt * p11 + qd * dt * dt / 2.0;
+        double n11 = p11 + qd * dt;
+        p00 = n00; p01 = n01; p11 = n11;
+    }
+
+    private void reset(long timeNanos, long fullBiasNanos, double biasNanos, boolean driftKnown, double drift, double driftUnc) {
+        refFullBiasNs = fullBiasNanos;
+        biasNs = biasNanos;
+        measuredBiasNs = biasNanos;
+        driftNsPerS = drift;
+        p00 = MIN_BIAS_VAR_NS2;
+        p01 = 0;
+        // An unknown drift could be ~1000 ns/s on a phone TCXO; start wide so the first epochs aren't called jumps
+        p11 = driftKnown ? Math.max(driftUnc * driftUnc, MIN_DRIFT_VAR) : UNKNOWN_DRIFT_VAR;
+        lastTimeNanos = timeNanos;
+        initialised = true;
+        epochsSinceReset = 0;
+        resets++;
+    }
+
+    private int finish() {
+        if (epochsSinceReset < WARMUP_EPOCHS) flags |= FLAG_WARMUP;
+        epochsSinceReset++;
+        return flags;
+    }
+
+    // True if this epoch's flags mean the carrier phase history (ADR) can't be trusted across it
+    public static boolean breaksAdr(int flags) {
+        return (flags & FLAG_HW_DISCONTINUITY) != 0;
+    }
+}
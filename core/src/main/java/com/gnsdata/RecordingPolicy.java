@@ -0,0 +1,246 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project decides WHICH wide sensor rows reach SheetLogger.
+It sits between SensorGnssListener.Sink and SheetLogger.logSensorsWide:
+    - Steady (phone lying still): rows are averaged into one row per steadyPeriodNs (averaging = cheap anti-alias filter)
+    - Event (accel/gyro variance or a baro change crosses a threshold): every raw row is written at full rate
+    - Pre-trigger: steady rows wait preTriggerNs in a ring buffer before being averaged, so when an event fires
+      the seconds BEFORE it are still raw and get written at full rate too
+Everything here is plain Java with primitive arrays, so it also runs in replay tests on a desktop.
+ */
+
+public final class RecordingPolicy {
+
+    // Same shape as SheetLogger.logSensorsWide so MainActivity can pass sheetLogger::logSensorsWide
+    public interface Out {
+        void write(long elapsedNs,
+                   Float baro_hPa,
+                   Float ax, Float ay, Float az,
+                   Float gx, Float gy, Float gz);
+    }
+
+    // Knobs (public fields with sensible defaults, tweak before handing to the constructor)
+    public static final class Config {
+        public long steadyPeriodNs = 1_000_000_000L;   // one averaged row per second while nothing happens
+        public long preTriggerNs = 3_000_000_000L;     // raw history kept for "the seconds before"
+        public long holdNs = 5_000_000_000L;           // stay at full rate this long after the last trigger
+        public double accelStdTrigger = 0.5;           // m/s², std-dev of |accel| that counts as motion
+        public double gyroStdTrigger = 0.15;           // rad/s, std-dev of |gyro| that counts as motion
+        public double baroDeltaTrigger = 0.3;          // hPa away from the slow baseline (~2.5 m of height)
+        public double varianceAlpha = 0.1;             // EWMA weight per accel/gyro sample (~10 samples)
+        public long baroBaselineTauNs = 60_000_000_000L; // time constant of the slow baro baseline
+        public int ringCapacity = 4096;                // hard cap on pre-trigger rows (covers 3 s at ~1 kHz)
+    }
+
+    private static final int CH = 7; // baro, ax, ay, az, gx, gy, gz
+
+    // Which sensor produced the row handed to onRow (bits, so a replay can say "all of them")
+    public static final int SOURCE_BARO = 1;
+    public static final int SOURCE_ACCEL = 2;
+    public static final int SOURCE_GYRO = 4;
+
+    private final Out out;
+    private final Config cfg;
+
+    // Pre-trigger ring buffer (primitive, preallocated; NaN means "no value yet" like a blank CSV cell)
+    private final long[] ringT;
+    private final float[] ringV; // CH floats per row
+    private int ringHead; // next write slot
+    private int ringSize;
+
+    // Steady-state averaging bucket
+    private final double[] sum = new double[CH];
+    private final int[] cnt = new int[CH];
+    private long bucketStartNs = Long.MIN_VALUE;
+    private long bucketTSum;
+    private int bucketRows;
+
+    // Motion detectors: EWMA mean/variance of |accel| and |gyro|, slow baseline for baro.
+    // Each one only sees its own sensor's samples (the held copies in other rows would shrink the variance and
+    // tie the baro time constant to the IMU rate); its last verdict stays until its sensor reports again
+    private double accMean, accVar, gyroMean, gyroVar, baroBase;
+    private boolean accInit, gyroInit, baroInit;
+    private boolean accHit, gyroHit, baroHit;
+    private long lastBaroNs;
+
+    private boolean active;            // true → full rate
+    private long lastTriggerNs;
+    private long lastWrittenNs = Long.MIN_VALUE; // newest elapsedNs we have handed to Out
+
+    // Counters, handy for the status line and for tests
+    private long rowsIn, rowsOut, triggers;
+
+    public RecordingPolicy(Out out, Config cfg) {
+        this.out = out;
+        this.cfg = cfg;
+        this.ringT = new long[cfg.ringCapacity];
+        this.ringV = new float[cfg.ringCapacity * CH];
+    }
+
+    public RecordingPolicy(Out out) { this(out, new Config()); }
+
+    public boolean isActive() { return active; }
+    public long rowsIn()  { return rowsIn; }
+    public long rowsOut() { return rowsOut; }
+    public long triggers() { return triggers; }
+
+    // One wide row, exactly what MainActivity used to hand to SheetLogger directly; source = SOURCE_* bits of the
+    // sensor(s) whose value is new in this row (the other values are sample-and-hold copies)
+    public void onRow(int source, long elapsedNs,
+                      Float baro_hPa,
+                      Float ax, Float ay, Float az,
+                      Float gx, Float gy, Float gz) {
+        rowsIn++;
+        float b = f(baro_hPa), x = f(ax), y = f(ay), z = f(az), p = f(gx), q = f(gy), r = f(gz);
+
+        boolean trigger = detect(source, elapsedNs, b, x, y, z, p, q, r);
+        if (trigger) {
+            lastTriggerNs = elapsedNs;
+            if (!active) {
+                active = true;
+                triggers++;
+                // Older history goes out averaged, the last preTriggerNs goes out raw
+                flushBucket();
+                flushRing();
+            }
+        } else if (active && elapsedNs - lastTriggerNs > cfg.holdNs) {
+            active = false; // back to steady, rows start collecting in the ring again
+        }
+
+        if (active) {
+            emit(elapsedNs, b, x, y, z, p, q, r);
+            return;
+        }
+
+        // Steady: every row waits in the ring first; only rows older than preTriggerNs get averaged
+        if (ringSize == ringT.length) popOldestIntoBucket();
+        pushRing(elapsedNs, b, x, y, z, p, q, r);
+        while (ringSize > 0 && elapsedNs - ringT[oldestIndex()] > cfg.preTriggerNs) popOldestIntoBucket();
+    }
+
+    // Write whatever is still buffered (call before closing the logger, and whenever the process may be killed)
+    public void flush() {
+        while (ringSize > 0) popOldestIntoBucket();
+        flushBucket();
+    }
+
+    // MOTION DETECTION
+
+    private boolean detect(int source, long t, float b, float x, float y, float z, float p, float q, float r) {
+        final double a = cfg.varianceAlpha;
+        if ((source & SOURCE_ACCEL) != 0 && !Float.isNaN(x)) {
+            double mag = Math.sqrt(x * x + y * y + z * z);
+            if (!accInit) { accMean = mag; accVar = 0; accInit = true; }
+            double d = mag - accMean;
+            accMean += a * d;
+            accVar = (1 - a) * (accVar + a * d * d);
+            accHit = Math.sqrt(accVar) > cfg.accelStdTrigger;
+        }
+        if ((source & SOURCE_GYRO) != 0 && !Float.isNaN(p)) {
+            double mag = Math.sqrt(p * p + q * q + r * r);
+            if (!gyroInit) { gyroMean = mag; gyroVar = 0; gyroInit = true; }
+            double d = mag - gyroMean;
+            gyroMean += a * d;
+            gyroVar = (1 - a) * (gyroVar + a * d * d);
+            gyroHit = Math.sqrt(gyroVar) > cfg.gyroStdTrigger;
+        }
+        if ((source & SOURCE_BARO) != 0 && !Float.isNaN(b)) {
+            if (!baroInit) { baroBase = b; baroInit = true; lastBaroNs = t; }
+            baroHit = Math.abs(b - baroBase) > cfg.baroDeltaTrigger;
+            // The baseline follows slowly, by time (not by sample count, baro rates differ a lot between phones):
+            // weather drift never triggers, stairs or an elevator do, and after a step the baseline catches up
+            // so we fall back to steady again
+            double dt = Math.max(0, t - lastBaroNs);
+            baroBase += (1 - Math.exp(-dt / cfg.baroBaselineTauNs)) * (b - baroBase);
+            lastBaroNs = t;
+        }
+        return accHit || gyroHit || baroHit;
+    }
+
+    // RING BUFFER
+
+    private void pushRing(long t, float b, float x, float y, float z, float p, float q, float r) {
+        int i = ringHead;
+        ringT[i] = t;
+        int o = i * CH;
+        ringV[o] = b; ringV[o + 1] = x; ringV[o + 2] = y; ringV[o + 3] = z;
+        ringV[o + 4] = p; ringV[o + 5] = q; ringV[o + 6] = r;
+        ringHead = (i + 1) % ringT.length;
+        if (ringSize < ringT.length) ringSize++;
+    }
+
+    private int oldestIndex() {
+        int cap = ringT.length;
+        return (ringHead - ringSize + cap) % cap;
+    }
+
+    // Write every buffered raw row (they are all within preTriggerNs), oldest first
+    private void flushRing() {
+        int cap = ringT.length;
+        int oldest = oldestIndex();
+        for (int k = 0; k < ringSize; k++) {
+            int i = (oldest + k) % cap;
+            int o = i * CH;
+            emit(ringT[i], ringV[o], ringV[o + 1], ringV[o + 2], ringV[o + 3],
+                    ringV[o + 4], ringV[o + 5], ringV[o + 6]);
+        }
+        ringSize = 0;
+    }
+
+    // Move the oldest ring row into the averaging bucket, closing the bucket when its period is up
+    private void popOldestIntoBucket() {
+        int i = oldestIndex();
+        ringSize--;
+        long t = ringT[i];
+        if (bucketStartNs != Long.MIN_VALUE && t - bucketStartNs >= cfg.steadyPeriodNs) flushBucket();
+        if (bucketStartNs == Long.MIN_VALUE) bucketStartNs = t;
+        int o = i * CH;
+        addToBucket(t, ringV[o], ringV[o + 1], ringV[o + 2], ringV[o + 3],
+                ringV[o + 4], ringV[o + 5], ringV[o + 6]);
+    }
+
+    // AVERAGING BUCKET
+
+    private void addToBucket(long t, float b, float x, float y, float z, float p, float q, float r) {
+        add(0, b); add(1, x); add(2, y); add(3, z); add(4, p); add(5, q); add(6, r);
+        bucketTSum += t - bucketStartNs; // offsets keep the sum far from overflow
+        bucketRows++;
+    }
+
+    private void add(int c, float v) {
+        if (Float.isNaN(v)) return;
+        sum[c] += v;
+        cnt[c]++;
+    }
+
+    private void flushBucket() {
+        if (bucketRows == 0) return;
+        // Time-stamp the averaged row at the middle of the samples it covers
+        long t = bucketStartNs + bucketTSum / bucketRows;
+        emit(t, avg(0), avg(1), avg(2), avg(3), avg(4), avg(5), avg(6));
+        resetBucket();
+    }
+
+    private float avg(int c) { return cnt[c] == 0 ? Float.NaN : (float) (sum[c] / cnt[c]); }
+
+    private void resetBucket() {
+        for (int c = 0; c < CH; c++) { sum[c] = 0; cnt[c] = 0; }
+        bucketTSum = 0;
+        bucketRows = 0;
+        bucketStartNs = Long.MIN_VALUE;
+    }
+
+    // OUTPUT
+
+    private void emit(long t, float b, float x, float y, float z, float p, float q, float r) {
+        if (t <= lastWrittenNs) return; // never write a row older than one already in the file
+        lastWrittenNs = t;
+        rowsOut++;
+        out.write(t, box(b), box(x), box(y), box(z), box(p), box(q), box(r));
+    }
+
+    private static float f(Float v) { return v == null ? Float.NaN : v; }
+    private static Float box(float v) { return Float.isNaN(v) ? null : v; }
+}
@@ -0,0 +1,74 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project keeps count / mean / variance / min / max of a stream of numbers in O(1)
+time and memory per value, with Welford's update (numerically stable, unlike sum and sum-of-squares):
+
+    n += 1;   delta = x - mean;   mean += delta / n;   m2 += delta * (x - mean)        variance = m2 / (n - 1)
+
+Two summaries combine exactly with Chan's formula (merge), in any grouping, so batch segments or sessions
+can be summarised separately and folded together afterwards.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public final class RunningStats {
+    private long n;
+    private double mean, m2;
+    private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+    // Fold one value in (NaN / infinities are ignored, like a blank CSV cell)
+    public void add(double x) {
+        if (Double.isNaN(x) || Double.isInfinite(x)) return;
+        n++;
+        double delta = x - mean;
+        mean += delta / n;
+        m2 += delta * (x - mean);
+        if (x < min) min = x;
+        if (x > max) max = x;
+    }
+
+    // this = this ∪ other (other is left untouched)
+    public RunningStats merge(RunningStats other) {
+        if (other.n == 0) return this;
+        if (n == 0) {
+            n = other.n; mean = other.mean; m2 = other.m2; min = other.min; max = other.max;
+            return this;
+        }
+        long total = n + other.n;
+        double delta = other.mean - mean;
+        mean += delta * other.n / total;
+        m2 += other.m2 + delta * delta * ((double) n * other.n / total);
+        n = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    public RunningStats copy() { return new RunningStats().merge(this); }
+
+    public void clear() {
+        n = 0; mean = 0; m2 = 0;
+        min = Double.POSITIVE_INFINITY; max = Double.NEGATIVE_INFINITY;
+    }
+
+    // The exact state (not the rounded summary), for SessionStats.writeTo / readFrom
+    void writeTo(DataOutput out) throws IOException {
+        out.writeLong(n); out.writeDouble(mean); out.writeDouble(m2); out.writeDouble(min); out.writeDouble(max);
+    }
+
+    void readFrom(DataInput in) throws IOException {
+        n = in.readLong(); mean = in.readDouble(); m2 = in.readDouble(); min = in.readDouble(); max = in.readDouble();
+    }
+
+    public long count() { return n; }
+    public double mean() { return n == 0 ? Double.NaN : mean; }
+    // Sample variance (n - 1); 0 for a single value, NaN when empty
+    public double variance() { return n == 0 ? Double.NaN : (n == 1 ? 0.0 : m2 / (n - 1)); }
+    public double std() { return Math.sqrt(variance()); }
+    public double min() { return n == 0 ? Double.NaN : min; }
+    public double max() { return n == 0 ? Double.NaN : max; }
+}
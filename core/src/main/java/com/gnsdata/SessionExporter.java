@@ -0,0 +1,180 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project packs a recorded session into one archive that can be shared or copied off
+the phone while logging goes on.
+
+The logs are append-only, so a snapshot is just (file, length) per log: SheetLogger.snapshot() flushes its writers
+and records the lengths under its lock, which always lands on a row boundary. Everything before those lengths never
+changes again, so it can be copied on another thread while new rows keep landing after it. Rows written after
+the snapshot are simply not in this export.
+
+The archive is a POSIX (ustar) tar rather than a zip:
+    - every entry is stored as-is: a 512-byte header, the file's bytes, zero padding to the next 512 bytes
+    - no CRC has to be known before the data (a stored zip entry needs one, i.e. a second full read of the file)
+    - no 4 GB limit per entry or archive (sizes past 8 GB use the base-256 size field that GNU tar / bsdtar read)
+The file bytes are moved with FileChannel.transferTo, so the kernel copies them straight from the log to the
+archive (sendfile / copy_file_range / mmap) and nothing passes through the Java heap; only the headers do.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+public final class SessionExporter {
+    public static final String MIME_TYPE = "application/x-tar";
+    public static final String EXTENSION = ".tar";
+
+    private static final int BLOCK = 512;
+    private static final long MAX_OCTAL_SIZE = 077777777777L; // 11 octal digits = 8 GiB − 1
+    // One transferTo call moves at most this much (some kernels cap sendfile at ~2 GB per call anyway)
+    private static final long CHUNK = 64L * 1024 * 1024;
+
+    // One file of the snapshot: the first `length` bytes of `file`, stored in the archive as `name`
+    public static final class Entry {
+        public final File file;
+        public final String name;
+        public final long length;
+
+        public Entry(File file, String name, long length) {
+            this.file = file;
+            this.name = name;
+            this.length = length;
+        }
+    }
+
+    // What one export did
+    public static final class Result {
+        public final File archive;
+        public final int entries;
+        public final long dataBytes;    // log bytes copied
+        public final long archiveBytes; // including headers and padding
+        public final long nanos;
+
+        Result(File archive, int entries, long dataBytes, long archiveBytes, long nanos) {
+            this.archive = archive;
+            this.entries = entries;
+            this.dataBytes = dataBytes;
+            this.archiveBytes = archiveBytes;
+            this.nanos = nanos;
+        }
+
+        public double megabytesPerSecond() { return nanos == 0 ? 0.0 : dataBytes / 1e6 / (nanos / 1e9); }
+
+        public String describe() {
+            return String.format(Locale.US, "Exported %d files, %.1f MB in %.2f s (%.0f MB/s): %s",
+                    entries, dataBytes / 1e6, nanos / 1e9, megabytesPerSecond(), archive.getName());
+        }
+    }
+
+    private SessionExporter() {} // static helpers only
+
+    /*
+        Write the entries into a tar at `archive`. The archive is built as "<archive>.part" and renamed at the end,
+        so a half-written export is never mistaken for a finished one. Blocking disk I/O: call it on a background
+        thread. Throws if a log got shorter than its snapshot (it was rewritten, not appended to).
+     */
+    public static Result writeTar(List<Entry> entries, File archive, long mtimeMs) throws IOException {
+        long t0 = System.nanoTime();
+        File parent = archive.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) parent.mkdirs();
+        File part = new File(archive.getPath() + ".part");
+        long data = 0;
+        ByteBuffer header = ByteBuffer.allocate(BLOCK);
+        try (FileChannel out = new FileOutputStream(part).getChannel()) {
+            for (Entry e : entries) {
+                header.clear();
+                header.put(tarHeader(e.name, e.length, mtimeMs)).flip();
+                writeFully(out, header);
+                try (FileChannel in = new FileInputStream(e.file).getChannel()) {
+                    transferFully(in, e.length, out, e.file);
+                }
+                data += e.length;
+                int pad = (int) ((BLOCK - (e.length % BLOCK)) % BLOCK);
+                if (pad > 0) writeFully(out, ByteBuffer.allocate(pad));
+            }
+            writeFully(out, ByteBuffer.allocate(2 * BLOCK)); // end of archive: two zero blocks
+        } catch (IOException e) {
+            part.delete();
+            throw e;
+        }
+        if (archive.exists()) archive.delete();
+        if (!part.renameTo(archive)) {
+            part.delete();
+            throw new IOException("could not rename " + part + " to " + archive);
+        }
+        return new Result(archive, entries.size(), data, archive.length(), System.nanoTime() - t0);
+    }
+
+    // The first `length` bytes of `in` onto the end of `out`, kernel to kernel
+    private static void transferFully(FileChannel in, long length, FileChannel out, File src) throws IOException {
+        long pos = 0;
+        while (pos < length) {
+            long n = in.transferTo(pos, Math.min(CHUNK, length - pos), out);
+            if (n <= 0) {
+                throw new IOException(src.getName() + " is shorter than its snapshot (" + pos + " < " + length + ")");
+            }
+            pos += n;
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) out.write(b);
+    }
+
+    // HEADER (ustar: https://pubs.opengroup.org/onlinepubs/9699919799/utilities/pax.html#tag_20_92_13_06)
+
+    static byte[] tarHeader(String name, long size, long mtimeMs) {
+        byte[] h = new byte[BLOCK];
+        byte[] n = name.getBytes(StandardCharsets.UTF_8);
+        if (n.length > 100) throw new IllegalArgumentException("entry name longer than 100 bytes: " + name);
+        System.arraycopy(n, 0, h, 0, n.length);
+        octal(h, 100, 8, 0644);                 // mode
+        octal(h, 108, 8, 0);                    // uid
+        octal(h, 116, 8, 0);                    // gid
+        size(h, 124, size);
+        octal(h, 136, 12, Math.max(0, mtimeMs / 1000));
+        h[156] = '0';                           // regular file
+        ascii(h, 257, "ustar\0");
+        ascii(h, 263, "00");
+        // Checksum: sum of all header bytes with the checksum field itself counted as spaces
+        for (int i = 148; i < 156; i++) h[i] = ' ';
+        long sum = 0;
+        for (byte b : h) sum += b & 0xFF;
+        octal(h, 148, 7, sum);                  // 6 digits + NUL, the 8th byte stays a space
+        return h;
+    }
+
+    // Up to 8 GiB as 11 octal digits; beyond that the base-256 form (high bit set, big-endian binary)
+    private static void size(byte[] h, int off, long size) {
+        if (size <= MAX_OCTAL_SIZE) {
+            octal(h, off, 12, size);
+            return;
+        }
+        h[off] = (byte) 0x80;
+        for (int i = 11; i >= 1; i--) {
+            h[off + i] = (byte) size;
+            size >>>= 8;
+        }
+    }
+
+    // Zero-padded octal digits followed by a NUL, filling `len` bytes
+    private static void octal(byte[] h, int off, int len, long v) {
+        String s = Long.toOctalString(v);
+        int digits = len - 1;
+        for (int i = 0; i < digits - s.length(); i++) h[off + i] = '0';
+        ascii(h, off + digits - s.length(), s);
+        h[off + digits] = 0;
+    }
+
+    private static void ascii(byte[] h, int off, String s) {
+        for (int i = 0; i < s.length(); i++) h[off + i] = (byte) s.charAt(i);
+    }
+}
@@ -0,0 +1,354 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project keeps running statistics for a whole session while it is being recorded:
+    - Per sensor channel (baro, accel x/y/z, gyro x/y/z): count, mean, std, min, max
+    - Per sensor stream (baro, accel, gyro): sample timing from the event timestamps: rate, interval mean/std
+      (jitter) and gaps (intervals longer than SENSOR_GAP_NS: the sensor stalled or the app was paused)
+    - Per satellite (constellation, svid): rows, TDCP availability, PR − smoothed PR (how noisy the code is; the
+      Hatch filter takes most of the noise out, so the difference is mostly code noise + multipath), TDCP rate,
+      tracking duration (first to last row) and slips (TDCP lost from one row of the satellite to the next: cycle
+      slip, loss of lock or a clock jump; a row without TDCP is all the listener or the CSV tells us)
+    - Per session: satellites per epoch
+Every update is O(1) (RunningStats, Welford) and allocates nothing except the first time a satellite shows up,
+so it runs on the capture thread. snapshot() is a short text for the UI, summaryRows() feed stats_summary.csv at
+close, and merge() folds two sessions/segments together (associative, so batch jobs can split the work any way;
+the interval / slip across the cut is counted when the later piece is merged in).
+writeTo() / readFrom() keep the exact state between app runs, so the next run can merge itself onto it.
+ */
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public final class SessionStats {
+    // Channel names match the sensors_log.csv columns
+    public static final String[] SENSOR_CHANNELS = Arrays.copyOfRange(CsvFormat.SENSORS_HEADER,
+            CsvFormat.columnOf(CsvFormat.SENSORS_HEADER, "Baro_hPa"), CsvFormat.SENSORS_HEADER.length);
+    private static final int BARO = 0, ACCEL = 1, GYRO = 4;
+    // Sensor streams for the timing rows, and the interval that counts as a gap
+    public static final String[] SENSOR_STREAMS = {"Baro", "Accel", "Gyro"};
+    public static final int STREAM_BARO = 0, STREAM_ACCEL = 1, STREAM_GYRO = 2;
+    public static final long SENSOR_GAP_NS = 2_000_000_000L; // same as the batch tool's default --gap-ms
+
+    // When one sensor stream's samples arrived
+    public static final class Timing {
+        public long samples, gaps;
+        public long firstNs = Long.MIN_VALUE, lastNs = Long.MIN_VALUE;
+        public final RunningStats intervalMs = new RunningStats();
+
+        void add(long tElapsedNs) {
+            if (lastNs != Long.MIN_VALUE) step(tElapsedNs - lastNs);
+            if (firstNs == Long.MIN_VALUE) firstNs = tElapsedNs;
+            lastNs = tElapsedNs;
+            samples++;
+        }
+
+        // `later` is the piece that comes after this one in time
+        void merge(Timing later) {
+            if (later.samples == 0) return;
+            if (samples == 0) firstNs = later.firstNs;
+            else if (later.firstNs >= lastNs) step(later.firstNs - lastNs); // elapsed time restarts at a reboot
+            samples += later.samples;
+            gaps += later.gaps;
+            intervalMs.merge(later.intervalMs);
+            lastNs = later.lastNs;
+        }
+
+        // Samples per second over the stream's span (NaN with fewer than two samples)
+        public double rateHz() {
+            return (samples < 2 || lastNs <= firstNs) ? Double.NaN : (samples - 1) * 1e9 / (lastNs - firstNs);
+        }
+
+        private void step(long dtNs) {
+            intervalMs.add(dtNs * 1e-6);
+            if (dtNs > SENSOR_GAP_NS) gaps++;
+        }
+    }
+
+    // One satellite's numbers
+    public static final class Sat {
+        public final int constellation, svid;
+        public long rows, tdcpRows, slips;
+        public long firstNs = Long.MIN_VALUE, lastNs = Long.MIN_VALUE;
+        public final RunningStats prMinusSmoothed = new RunningStats(); // meters
+        public final RunningStats tdcpRate = new RunningStats();        // m/s
+        boolean firstTdcp, lastTdcp; // did the first / latest row have TDCP (for slips across a merge)
+
+        Sat(int constellation, int svid) {
+            this.constellation = constellation;
+            this.svid = svid;
+        }
+
+        // First to last row, seconds
+        public double trackedSeconds() { return rows == 0 ? 0.0 : (lastNs - firstNs) * 1e-9; }
+
+        // `o` is the piece that comes after this one in time
+        void merge(Sat o) {
+            if (o.rows == 0) return;
+            if (rows == 0) {
+                firstNs = o.firstNs;
+                firstTdcp = o.firstTdcp;
+            } else if (lastTdcp && !o.firstTdcp) {
+                slips++; // lost right at the cut
+            }
+            rows += o.rows;
+            tdcpRows += o.tdcpRows;
+            slips += o.slips;
+            prMinusSmoothed.merge(o.prMinusSmoothed);
+            tdcpRate.merge(o.tdcpRate);
+            lastNs = Math.max(lastNs, o.lastNs);
+            lastTdcp = o.lastTdcp;
+        }
+    }
+
+    private final RunningStats[] sensors = new RunningStats[SENSOR_CHANNELS.length];
+    private final Timing[] timing = new Timing[SENSOR_STREAMS.length];
+    private final RunningStats satsPerEpoch = new RunningStats();
+    private int rowsThisEpoch;
+
+    // Satellites: open-addressing table key → index into sats (same idea as HatchFilter, no boxing on lookup)
+    private int[] keys = new int[128];
+    private int[] index = new int[128];
+    private boolean[] used = new boolean[128];
+    private final List<Sat> sats = new ArrayList<>();
+
+    public SessionStats() {
+        for (int i = 0; i < sensors.length; i++) sensors[i] = new RunningStats();
+        for (int i = 0; i < timing.length; i++) timing[i] = new Timing();
+    }
+
+    public static int satKey(int constellation, int svid) { return (constellation << 16) | (svid & 0xFFFF); }
+
+    // UPDATES (capture thread)
+
+    // One sample per call, stamped with the sensor event's elapsed-realtime time
+    public void onBarometer(float hPa, long tElapsedNs) {
+        sensors[BARO].add(hPa);
+        timing[STREAM_BARO].add(tElapsedNs);
+    }
+
+    public void onAccel(float ax, float ay, float az, long tElapsedNs) {
+        sensors[ACCEL].add(ax); sensors[ACCEL + 1].add(ay); sensors[ACCEL + 2].add(az);
+        timing[STREAM_ACCEL].add(tElapsedNs);
+    }
+
+    public void onGyro(float gx, float gy, float gz, long tElapsedNs) {
+        sensors[GYRO].add(gx); sensors[GYRO + 1].add(gy); sensors[GYRO + 2].add(gz);
+        timing[STREAM_GYRO].add(tElapsedNs);
+    }
+
+    // One satellite row of the current epoch (tdcpRateMps null when ADR wasn't usable)
+    public void onSatellite(int constellation, int svid, double prMeters, double prSmoothedMeters, Double tdcpRateMps,
+                            long tElapsedNs) {
+        Sat s = sat(constellation, svid);
+        boolean tdcp = tdcpRateMps != null;
+        if (s.rows == 0) {
+            s.firstNs = tElapsedNs;
+            s.firstTdcp = tdcp;
+        } else if (s.lastTdcp && !tdcp) {
+            s.slips++;
+        }
+        s.rows++;
+        s.lastNs = tElapsedNs;
+        s.lastTdcp = tdcp;
+        s.prMinusSmoothed.add(prMeters - prSmoothedMeters);
+        if (tdcp) {
+            s.tdcpRows++;
+            s.tdcpRate.add(tdcpRateMps);
+        }
+        rowsThisEpoch++;
+    }
+
+    // Close the current epoch (after its satellites)
+    public void onEpoch() {
+        satsPerEpoch.add(rowsThisEpoch);
+        rowsThisEpoch = 0;
+    }
+
+    // READING
+
+    public RunningStats sensor(int channel) { return sensors[channel]; }
+    public Timing timing(int stream) { return timing[stream]; }
+    public RunningStats satsPerEpoch() { return satsPerEpoch; }
+    public int satelliteCount() { return sats.size(); }
+
+    // The satellite's stats, or null if it was never seen
+    public Sat satellite(int constellation, int svid) {
+        int i = find(satKey(constellation, svid));
+        return (i < 0) ? null : sats.get(i);
+    }
+
+    // A few lines for the screen
+    public String snapshot() {
+        long rows = 0, tdcp = 0, slips = 0, gaps = 0;
+        RunningStats code = new RunningStats();
+        for (Sat s : sats) {
+            rows += s.rows;
+            tdcp += s.tdcpRows;
+            slips += s.slips;
+            code.merge(s.prMinusSmoothed);
+        }
+        for (Timing t : timing) gaps += t.gaps;
+        return String.format(Locale.US,
+                "Stats: %d sats seen, %.1f per epoch, TDCP %.0f%%, %d slips, PR−smoothed σ %.2f m%n"
+                        + "σ accel %.3f/%.3f/%.3f m/s², gyro %.4f/%.4f/%.4f rad/s, baro %.3f hPa%n"
+                        + "rate accel %.0f Hz, gyro %.0f Hz, baro %.0f Hz, %d gaps",
+                sats.size(), nz(satsPerEpoch.mean()), rows == 0 ? 0.0 : 100.0 * tdcp / rows, slips, nz(code.std()),
+                nz(sensors[ACCEL].std()), nz(sensors[ACCEL + 1].std()), nz(sensors[ACCEL + 2].std()),
+                nz(sensors[GYRO].std()), nz(sensors[GYRO + 1].std()), nz(sensors[GYRO + 2].std()),
+                nz(sensors[BARO].std()),
+                nz(timing[STREAM_ACCEL].rateHz()), nz(timing[STREAM_GYRO].rateHz()), nz(timing[STREAM_BARO].rateHz()),
+                gaps);
+    }
+
+    // Rows for stats_summary.csv (CsvFormat.STATS_HEADER), satellites sorted by constellation then svid
+    public List<Object[]> summaryRows() {
+        List<Object[]> rows = new ArrayList<>();
+        RunningStats perEpoch = satsPerEpoch.copy();
+        if (rowsThisEpoch > 0) perEpoch.add(rowsThisEpoch); // last epoch may not be closed yet
+        rows.add(row("session", null, null, "Sats_per_epoch", perEpoch));
+        for (int c = 0; c < sensors.length; c++) rows.add(row("sensor", null, null, SENSOR_CHANNELS[c], sensors[c]));
+        // Per stream: interval mean/std (jitter) in ms, the rate, and the gap count with the longest interval
+        for (int k = 0; k < timing.length; k++) {
+            Timing t = timing[k];
+            String name = SENSOR_STREAMS[k];
+            rows.add(row("sensor", null, null, name + "_interval_ms", t.intervalMs));
+            rows.add(new Object[] {"sensor", null, null, name + "_rate_hz",
+                    t.samples, Double.isNaN(t.rateHz()) ? null : t.rateHz(), null, null, null});
+            rows.add(new Object[] {"sensor", null, null, name + "_gaps",
+                    t.gaps, null, null, null, t.intervalMs.count() > 0 ? t.intervalMs.max() : null});
+        }
+        List<Sat> sorted = new ArrayList<>(sats);
+        sorted.sort((a, b) -> Integer.compare(satKey(a.constellation, a.svid), satKey(b.constellation, b.svid)));
+        for (Sat s : sorted) {
+            rows.add(new Object[] {"satellite", s.constellation, s.svid, "TDCP_availability",
+                    s.rows, s.rows == 0 ? null : (double) s.tdcpRows / s.rows, null, null, null});
+            rows.add(row("satellite", s.constellation, s.svid, "PR_minus_smoothed_m", s.prMinusSmoothed));
+            rows.add(row("satellite", s.constellation, s.svid, "TDCP_rate_mps", s.tdcpRate));
+            rows.add(new Object[] {"satellite", s.constellation, s.svid, "Tracked_s",
+                    s.rows, s.rows == 0 ? null : s.trackedSeconds(), null, null, null});
+            rows.add(new Object[] {"satellite", s.constellation, s.svid, "TDCP_slips",
+                    s.slips, null, null, null, null});
+        }
+        return rows;
+    }
+
+    // MERGE: this = this ∪ other (other is left untouched; it is the piece that comes after this one in time)
+    public SessionStats merge(SessionStats other) {
+        for (int c = 0; c < sensors.length; c++) sensors[c].merge(other.sensors[c]);
+        for (int k = 0; k < timing.length; k++) timing[k].merge(other.timing[k]);
+        // Segments are cut between epochs, so an epoch still open on either side is complete
+        if (rowsThisEpoch > 0) onEpoch();
+        satsPerEpoch.merge(other.satsPerEpoch);
+        if (other.rowsThisEpoch > 0) satsPerEpoch.add(other.rowsThisEpoch);
+        for (Sat o : other.sats) sat(o.constellation, o.svid).merge(o);
+        return this;
+    }
+
+    // PERSISTENCE: the exact state (not the rounded summary), so a later run can merge() onto it
+
+    private static final int STATE_VERSION = 1;
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(STATE_VERSION);
+        for (RunningStats r : sensors) r.writeTo(out);
+        for (Timing t : timing) {
+            out.writeLong(t.samples); out.writeLong(t.gaps); out.writeLong(t.firstNs); out.writeLong(t.lastNs);
+            t.intervalMs.writeTo(out);
+        }
+        satsPerEpoch.writeTo(out);
+        out.writeInt(rowsThisEpoch);
+        out.writeInt(sats.size());
+        for (Sat s : sats) {
+            out.writeInt(s.constellation); out.writeInt(s.svid);
+            out.writeLong(s.rows); out.writeLong(s.tdcpRows); out.writeLong(s.slips);
+            out.writeLong(s.firstNs); out.writeLong(s.lastNs);
+            out.writeBoolean(s.firstTdcp); out.writeBoolean(s.lastTdcp);
+            s.prMinusSmoothed.writeTo(out);
+            s.tdcpRate.writeTo(out);
+        }
+    }
+
+    // Throws on anything writeTo didn't write (another version, a truncated file)
+    public static SessionStats readFrom(DataInput in) throws IOException {
+        int version = in.readInt();
+        if (version != STATE_VERSION) throw new IOException("unknown stats state version " + version);
+        SessionStats st = new SessionStats();
+        for (RunningStats r : st.sensors) r.readFrom(in);
+        for (Timing t : st.timing) {
+            t.samples = in.readLong(); t.gaps = in.readLong(); t.firstNs = in.readLong(); t.lastNs = in.readLong();
+            t.intervalMs.readFrom(in);
+        }
+        st.satsPerEpoch.readFrom(in);
+        st.rowsThisEpoch = in.readInt();
+        int n = in.readInt();
+        for (int k = 0; k < n; k++) {
+            Sat s = st.sat(in.readInt(), in.readInt());
+            s.rows = in.readLong(); s.tdcpRows = in.readLong(); s.slips = in.readLong();
+            s.firstNs = in.readLong(); s.lastNs = in.readLong();
+            s.firstTdcp = in.readBoolean(); s.lastTdcp = in.readBoolean();
+            s.prMinusSmoothed.readFrom(in);
+            s.tdcpRate.readFrom(in);
+        }
+        return st;
+    }
+
+    // HELPERS
+
+    private static Object[] row(String scope, Integer constellation, Integer svid, String channel, RunningStats r) {
+        boolean any = r.count() > 0;
+        return new Object[] {scope, constellation, svid, channel, r.count(),
+                any ? r.mean() : null, any ? r.std() : null, any ? r.min() : null, any ? r.max() : null};
+    }
+
+    private static double nz(double v) { return Double.isNaN(v) ? 0.0 : v; }
+
+    private Sat sat(int constellation, int svid) {
+        int key = satKey(constellation, svid);
+        int i = find(key);
+        if (i >= 0) return sats.get(i);
+        if ((sats.size() + 1) * 2 > keys.length) grow();
+        Sat s = new Sat(constellation, svid);
+        sats.add(s);
+        put(key, sats.size() - 1);
+        return s;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) return index[i];
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void put(int key, int value) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (used[i]) i = (i + 1) & mask;
+        used[i] = true;
+        keys[i] = key;
+        index[i] = value;
+    }
+
+    private void grow() {
+        int n = keys.length * 2;
+        keys = new int[n];
+        index = new int[n];
+        used = new boolean[n];
+        for (int j = 0; j < sats.size(); j++) put(satKey(sats.get(j).constellation, sats.get(j).svid), j);
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
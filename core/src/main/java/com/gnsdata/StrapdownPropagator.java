@@ -0,0 +1,220 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project integrates the IMU between GNSS epochs ("strapdown" navigation):
+    - Gyro rates (rad/s, body frame) rotate the attitude quaternion q (body → nav)
+    - Accelerations are rotated into the nav frame (x/y level, z up), gravity is taken out if the sensor includes it,
+      and integrated into velocity (m/s) and position (m)
+    - At every GNSS epoch the position is re-based to zero, so the output is "where we are since the last epoch";
+      a solver with a real fix can push its velocity/attitude back in with correctVelocity()/setAttitude()
+    - Velocity is the integral of every accelerometer error since start, so it is pulled back at each epoch too:
+      if the whole interval was still (gyro and gravity-free acceleration under the STILL_* limits) it is zeroed
+      (a zero-velocity update), otherwise it decays with the damping time constant (default VELOCITY_TAU_NS).
+      Without either, a still phone walks off at bias × t and every later epoch displacement carries that drift
+Everything is primitive fields (no arrays, no objects) so a sample costs a few dozen flops and allocates nothing.
+
+Frames: body = Android device axes (x right, y up the screen, z out of the screen). At start the nav frame is
+levelled from gravity when the accelerometer includes it (TYPE_ACCELEROMETER), otherwise it is simply the
+starting body frame (TYPE_LINEAR_ACCELERATION already has gravity removed by Android).
+ */
+
+public final class StrapdownPropagator {
+    public static final double GRAVITY_MPS2 = 9.80665;
+    // Gaps longer than this (sensor paused, app in background) aren't integrated across
+    public static final long MAX_DT_NS = 200_000_000L;
+    // An epoch interval counts as still when no sample went past these (rad/s, m/s² after gravity is removed)
+    public static final double STILL_GYRO_RADPS = 0.05;
+    public static final double STILL_ACCEL_MPS2 = 0.3;
+    // Velocity decay between epochs when the phone moved: v *= exp(-interval / tau)
+    public static final long VELOCITY_TAU_NS = 10_000_000_000L;
+
+    // High-rate output, called once per accelerometer sample (primitives only so nothing is boxed)
+    public interface Output {
+        void onNav(long tElapsedNs,
+                   double px, double py, double pz,
+                   double vx, double vy, double vz,
+                   double qw, double qx, double qy, double qz);
+    }
+
+    private final Output out;
+    private final boolean accelIncludesGravity;
+
+    // Attitude body → nav
+    private double qw = 1, qx, qy, qz;
+    // Velocity and position (position relative to the last GNSS epoch)
+    private double vx, vy, vz;
+    private double px, py, pz;
+    // Nav-frame acceleration of the previous accel sample (trapezoid integration)
+    private double lastAx, lastAy, lastAz;
+
+    // Held gyro rate and the time the attitude is valid at
+    private double wx, wy, wz;
+    private long attT = Long.MIN_VALUE;
+    private long accT = Long.MIN_VALUE;
+    private boolean levelled;
+
+    // Largest squared gyro rate / gravity-free acceleration seen in the current epoch interval (stillness test)
+    private double maxW2, maxA2;
+    private long epochT = Long.MIN_VALUE;
+    private long velocityTauNs = VELOCITY_TAU_NS;
+
+    // Displacement over the last closed epoch interval, and counters
+    private double epochDx, epochDy, epochDz;
+    private long samples, epochs, zeroVelocityUpdates;
+
+    public StrapdownPropagator(boolean accelIncludesGravity, Output out) {
+        this.accelIncludesGravity = accelIncludesGravity;
+        this.out = out;
+        this.levelled = !accelIncludesGravity; // nothing to level against without gravity
+    }
+
+    // GYRO: bring the attitude up to t with the old rate, then hold the new one
+    public void onGyro(float gx, float gy, float gz, long tElapsedNs) {
+        advanceAttitude(tElapsedNs);
+        wx = gx; wy = gy; wz = gz;
+        double w2 = (double) gx * gx + (double) gy * gy + (double) gz * gz;
+        if (w2 > maxW2) maxW2 = w2;
+    }
+
+    // ACCEL: rotate into nav, remove gravity, integrate velocity + position, emit one output
+    public void onAccel(float ax, float ay, float az, long tElapsedNs) {
+        if (!levelled) {
+            level(ax, ay, az);
+            levelled = true;
+        }
+        advanceAttitude(tElapsedNs);
+
+        // f_nav = R(q) * f_body
+        double r00 = 1 - 2 * (qy * qy + qz * qz), r01 = 2 * (qx * qy - qw * qz), r02 = 2 * (qx * qz + qw * qy);
+        double r10 = 2 * (qx * qy + qw * qz), r11 = 1 - 2 * (qx * qx + qz * qz), r12 = 2 * (qy * qz - qw * qx);
+        double r20 = 2 * (qx * qz - qw * qy), r21 = 2 * (qy * qz + qw * qx), r22 = 1 - 2 * (qx * qx + qy * qy);
+        double nx = r00 * ax + r01 * ay + r02 * az;
+        double ny = r10 * ax + r11 * ay + r12 * az;
+        double nz = r20 * ax + r21 * ay + r22 * az;
+        if (accelIncludesGravity) nz -= GRAVITY_MPS2; // at rest the accelerometer reads +g up
+        double a2 = nx * nx + ny * ny + nz * nz;
+        if (a2 > maxA2) maxA2 = a2;
+
+        long dtNs = (accT == Long.MIN_VALUE) ? 0 : tElapsedNs - accT;
+        if (dtNs > 0 && dtNs <= MAX_DT_NS) {
+            double dt = dtNs * 1e-9;
+            double nvx = vx + 0.5 * (lastAx + nx) * dt;
+            double nvy = vy + 0.5 * (lastAy + ny) * dt;
+            double nvz = vz + 0.5 * (lastAz + nz) * dt;
+            px += 0.5 * (vx + nvx) * dt;
+            py += 0.5 * (vy + nvy) * dt;
+            pz += 0.5 * (vz + nvz) * dt;
+            vx = nvx; vy = nvy; vz = nvz;
+        }
+        accT = tElapsedNs;
+        lastAx = nx; lastAy = ny; lastAz = nz;
+        samples++;
+
+        if (out != null) out.onNav(tElapsedNs, px, py, pz, vx, vy, vz, qw, qx, qy, qz);
+    }
+
+    /*
+        GNSS epoch: close the interval (keep its displacement), re-base position to zero, and rein in the velocity:
+        zero it if the interval was still, otherwise let it decay by exp(-interval / tau). Both bound the drift of
+        the next interval instead of letting it grow with the session length.
+     */
+    public void onGnssEpoch(long tElapsedNs) {
+        epochDx = px; epochDy = py; epochDz = pz;
+        px = 0; py = 0; pz = 0;
+        boolean still = samples > 0
+                && maxW2 < STILL_GYRO_RADPS * STILL_GYRO_RADPS
+                && maxA2 < STILL_ACCEL_MPS2 * STILL_ACCEL_MPS2;
+        if (still) {
+            vx = 0; vy = 0; vz = 0;
+            zeroVelocityUpdates++;
+        } else if (velocityTauNs > 0 && epochT != Long.MIN_VALUE && tElapsedNs > epochT) {
+            double keep = Math.exp(-(double) (tElapsedNs - epochT) / velocityTauNs);
+            vx *= keep; vy *= keep; vz *= keep;
+        }
+        maxW2 = 0; maxA2 = 0;
+        epochT = tElapsedNs;
+        epochs++;
+    }
+
+    // Velocity decay time constant between moving epochs; 0 turns the decay off (zero-velocity updates stay on)
+    public void setVelocityTauNs(long tauNs) {
+        this.velocityTauNs = tauNs;
+    }
+
+    // Corrections from a GNSS solver (TDCP velocity, a fix, ...)
+    public void correctVelocity(double vx, double vy, double vz) {
+        this.vx = vx; this.vy = vy; this.vz = vz;
+    }
+
+    public void setAttitude(double qw, double qx, double qy, double qz) {
+        this.qw = qw; this.qx = qx; this.qy = qy; this.qz = qz;
+        normalize();
+        levelled = true;
+    }
+
+    // Accessors for the UI / tests
+    public double px() { return px; }
+    public double py() { return py; }
+    public double pz() { return pz; }
+    public double vx() { return vx; }
+    public double vy() { return vy; }
+    public double vz() { return vz; }
+    public double qw() { return qw; }
+    public double qx() { return qx; }
+    public double qy() { return qy; }
+    public double qz() { return qz; }
+    public double epochDx() { return epochDx; }
+    public double epochDy() { return epochDy; }
+    public double epochDz() { return epochDz; }
+    public long samples() { return samples; }
+    public long epochs() { return epochs; }
+    public long zeroVelocityUpdates() { return zeroVelocityUpdates; }
+
+    // Heading of the body y axis in the nav frame, degrees (handy for a quick sanity check on screen)
+    public double yawDeg() {
+        return Math.toDegrees(Math.atan2(2 * (qw * qz + qx * qy), 1 - 2 * (qy * qy + qz * qz)));
+    }
+
+    // ATTITUDE
+
+    // q = q ⊗ exp(ω dt / 2), with ω held since the last gyro sample
+    private void advanceAttitude(long t) {
+        if (attT == Long.MIN_VALUE) { attT = t; return; }
+        long dtNs = t - attT;
+        attT = t;
+        if (dtNs <= 0 || dtNs > MAX_DT_NS) return;
+        double dt = dtNs * 1e-9;
+        double ax = wx * dt, ay = wy * dt, az = wz * dt;
+        double angle = Math.sqrt(ax * ax + ay * ay + az * az);
+        if (angle < 1e-12) return;
+        double half = 0.5 * angle;
+        double s = Math.sin(half) / angle;
+        double dw = Math.cos(half), dx = ax * s, dy = ay * s, dz = az * s;
+        double nw = qw * dw - qx * dx - qy * dy - qz * dz;
+        double nx = qw * dx + qx * dw + qy * dz - qz * dy;
+        double ny = qw * dy - qx * dz + qy * dw + qz * dx;
+        double nz = qw * dz + qx * dy - qy * dx + qz * dw;
+        qw = nw; qx = nx; qy = ny; qz = nz;
+        normalize();
+    }
+
+    // Roll/pitch from the gravity direction (yaw is unobservable without a magnetometer, so it starts at 0)
+    private void level(double ax, double ay, double az) {
+        double roll = Math.atan2(ay, az);
+        double pitch = Math.atan2(-ax, Math.sqrt(ay * ay + az * az));
+        double cr = Math.cos(roll / 2), sr = Math.sin(roll / 2);
+        double cp = Math.cos(pitch / 2), sp = Math.sin(pitch / 2);
+        // yaw = 0: q = q_pitch(y) ⊗ q_roll(x)
+        qw = cp * cr;
+        qx = cp * sr;
+        qy = sp * cr;
+        qz = -sp * sr;
+        normalize();
+    }
+
+    private void normalize() {
+        double n = Math.sqrt(qw * qw + qx * qx + qy * qy + qz * qz);
+        qw /= n; qx /= n; qy /= n; qz /= n;
+    }
+}
@@ -0,0 +1,169 @@
+package com.gnsdata;
+/*
+Github: https://github.com/incognitosushiroll/GNSSData.git
+
+This file within the GNSSData project is the one place that knows what time it is. Everything else stamps its data
+with elapsed-realtime nanoseconds (monotonic, the same clock every SensorEvent and GnssClock uses) and asks the
+TimeBase to turn that into UTC or GPS time when it needs to:
+
+    utcNs = elapsedNs + utcOffsetNs        gpsNs = elapsedNs + gpsOffsetNs (ns since 1980-01-06, continuous GPST)
+
+The offsets come from two places:
+    - calibrateFromSystem: System.currentTimeMillis() read between two elapsed reads, every RECALIBRATE_NS
+      (MainActivity does this on a timer, so the capture threads never make a clock call of their own)
+    - refineFromGnss: GnssClock time (TimeNanos − FullBiasNanos − BiasNanos) against the elapsed time of the same
+      epoch. Much better than the system clock (µs instead of ms); a small moving average takes out the bias noise,
+      a jump bigger than GNSS_JUMP_NS (clock reset, new fix) starts over. Once GNSS time is in, UTC follows it
+      (GPST − leap seconds) and the system clock is only used again when GNSS has been quiet for GNSS_STALE_NS.
+Without GNSS, GPS time is derived from the system clock (UTC + leap seconds).
+
+Updates come from different threads (timer, GNSS callback), reads from any thread. Both offsets (and where they
+came from) are published together as one immutable Offsets object behind a single volatile, so a reader never pairs
+a new UTC offset with an old GPS offset; a read is a load or two and an add (no locks, no syscalls).
+ */
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+public final class TimeBase {
+    // 1980-01-06T00:00:00Z in Unix milliseconds (start of GPS time)
+    public static final long GPS_EPOCH_UNIX_MS = 315_964_800_000L;
+
+    // How often the system clock should be re-read, and when GNSS time counts as stale
+    public static final long RECALIBRATE_NS = 10_000_000_000L;
+    public static final long GNSS_STALE_NS = 60_000_000_000L;
+
+    // GNSS refinement: moving-average weight per epoch, and the step that restarts it
+    public static final double GNSS_ALPHA = 0.1;
+    public static final long GNSS_JUMP_NS = 10_000_000L;
+
+    private static final long NS_PER_MS = 1_000_000L;
+    private static final long NS_PER_S = 1_000_000_000L;
+
+    // One calibration, published as a whole (a new object per update: every 10 s, or once per GNSS epoch)
+    private static final class Offsets {
+        final long utcOffsetNs;  // UTC ns since 1970 − elapsed ns
+        final long gpsOffsetNs;  // GPST ns since 1980-01-06 − elapsed ns
+        final boolean gnss;
+        final int leapSeconds;
+
+        Offsets(long utcOffsetNs, long gpsOffsetNs, boolean gnss, int leapSeconds) {
+            this.utcOffsetNs = utcOffsetNs;
+            this.gpsOffsetNs = gpsOffsetNs;
+            this.gnss = gnss;
+            this.leapSeconds = leapSeconds;
+        }
+    }
+
+    // Before the first calibration: zero offsets, system clock, default leap seconds
+    private static final Offsets NONE = new Offsets(0, 0, false, GnssRanging.DEFAULT_LEAP_SECONDS);
+
+    private volatile Offsets offsets = NONE;
+
+    // Bookkeeping for the updates (guarded by this)
+    private long lastSystemNs = Long.MIN_VALUE;
+    private long lastGnssNs = Long.MIN_VALUE;
+    private long gnssBaseNs;        // first GNSS offset after a (re)start
+    private double gnssResidualNs;  // averaged offset − gnssBaseNs (small, so a double keeps every ns)
+
+    // CALIBRATION
+
+    /*
+        One system clock reading, bracketed by two elapsed reads:
+            long e0 = SystemClock.elapsedRealtimeNanos(); long wall = System.currentTimeMillis(); long e1 = ...;
+        The wall clock is taken to belong to the middle of the two.
+     */
+    public synchronized void calibrateFromSystem(long elapsedBeforeNs, long wallMs, long elapsedAfterNs) {
+        long mid = elapsedBeforeNs + (elapsedAfterNs - elapsedBeforeNs) / 2;
+        lastSystemNs = mid;
+        Offsets o = offsets;
+        if (o.gnss && mid - lastGnssNs < GNSS_STALE_NS) return; // GNSS time is better, keep it
+        long utc = wallMs * NS_PER_MS - mid;
+        long gps = utc - GPS_EPOCH_UNIX_MS * NS_PER_MS + o.leapSeconds * NS_PER_S;
+        offsets = new Offsets(utc, gps, false, o.leapSeconds);
+    }
+
+    // GNSS receiver time in GPST ns (TimeNanos − FullBiasNanos − BiasNanos) for the epoch seen at elapsedNs
+    public synchronized void refineFromGnss(long elapsedNs, long gpsTimeNs, int leapSeconds) {
+        long sample = gpsTimeNs - elapsedNs;
+        Offsets o = offsets;
+        boolean restart = !o.gnss || leapSeconds != o.leapSeconds
+                || Math.abs(sample - o.gpsOffsetNs) > GNSS_JUMP_NS;
+        if (restart) {
+            gnssBaseNs = sample;
+            gnssResidualNs = 0;
+        } else {
+            gnssResidualNs += GNSS_ALPHA * ((sample - gnssBaseNs) - gnssResidualNs);
+        }
+        lastGnssNs = elapsedNs;
+        long gps = gnssBaseNs + Math.round(gnssResidualNs);
+        long utc = gps + GPS_EPOCH_UNIX_MS * NS_PER_MS - leapSeconds * NS_PER_S;
+        offsets = new Offsets(utc, gps, true, leapSeconds);
+    }
+
+    // True when the system clock should be read again (cheap, call it from a timer)
+    public synchronized boolean recalibrationDue(long elapsedNs) {
+        return lastSystemNs == Long.MIN_VALUE || elapsedNs - lastSystemNs >= RECALIBRATE_NS;
+    }
+
+    // READING (any thread)
+
+    public boolean isCalibrated() { return offsets != NONE; }
+    public boolean gnssCalibrated() { return offsets.gnss; }
+    public int leapSeconds() { return offsets.leapSeconds; }
+
+    public long utcMillis(long elapsedNs) { return Math.floorDiv(elapsedNs + offsets.utcOffsetNs, NS_PER_MS); }
+    public long gpsNanos(long elapsedNs) { return elapsedNs + offsets.gpsOffsetNs; }
+
+    /*
+        UTC ms and GPS ns for the same instant from ONE calibration (a row's Time and GpsTimeNs cells must agree).
+        Writes {utcMs, gpsNs} into out, so nothing is allocated per row.
+     */
+    public void stamp(long elapsedNs, long[] out) {
+        Offsets o = offsets;
+        out[0] = Math.floorDiv(elapsedNs + o.utcOffsetNs, NS_PER_MS);
+        out[1] = elapsedNs + o.gpsOffsetNs;
+    }
+
+    public String describe() {
+        Offsets o = offsets;
+        if (o == NONE) return "Time: not calibrated";
+        return String.format(Locale.US, "Time: %s, leap %d s", o.gnss ? "GNSS" : "system clock", o.leapSeconds);
+    }
+
+    /*
+        Date / time-of-day text for CSV rows. Rows come at up to a few hundred per second, so the date formatter
+        only runs when the second changes; the milliseconds are appended by hand. Local time zone, same as the
+        Date/Time columns always were. Not thread-safe: one per writer (SheetLogger calls it under its lock).
+     */
+    public static final class Formatter {
+        private final SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        private long second = Long.MIN_VALUE;
+        private String date = "";
+        private String hms = "";
+
+        public String date(long utcMs) {
+            refresh(utcMs);
+            return date;
+        }
+
+        public String time(long utcMs) {
+            refresh(utcMs);
+            int ms = (int) Math.floorMod(utcMs, 1000L);
+            StringBuilder sb = new StringBuilder(12).append(hms).append('.');
+            if (ms < 100) sb.append('0');
+            if (ms < 10) sb.append('0');
+            return sb.append(ms).toString();
+        }
+
+        private void refresh(long utcMs) {
+            long s = Math.floorDiv(utcMs, 1000L);
+            if (s == second) return;
+            second = s;
+            String text = fmt.format(new Date(s * 1000L));
+            date = text.substring(0, 10);
+            hms = text.substring(11);
+        }
+    }
+}
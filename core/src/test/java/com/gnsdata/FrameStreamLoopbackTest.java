@@ -0,0 +1,191 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Linux-side loopback client for FrameStreamServer: measures end-to-end latency (frames carry System.nanoTime()
+ * as tElapsedNs) and sustained throughput, checks that a stalled subscriber only costs itself frames, and that a
+ * client without the session token gets nothing.
+ */
+public class FrameStreamLoopbackTest {
+    private static final String TOKEN = FrameStreamServer.newToken();
+
+    // Reads frames off the socket on its own thread and records latency per frame
+    static final class LoopbackClient implements Runnable {
+        final SocketChannel ch;
+        final int expect;
+        final long[] latencyNs;
+        volatile int frames;
+        volatile long bytes;
+        final Thread thread = new Thread(this, "loopback-client");
+
+        LoopbackClient(int port, int expect) throws IOException {
+            this(port, expect, TOKEN);
+        }
+
+        LoopbackClient(int port, int expect, String token) throws IOException {
+            this.ch = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            ch.write(ByteBuffer.wrap(token.getBytes(StandardCharsets.US_ASCII)));
+            this.expect = expect;
+            this.latencyNs = new long[expect];
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer buf = ByteBuffer.allocate(256 * 1024);
+            try {
+                while (frames < expect) {
+                    if (ch.read(buf) < 0) break;
+                    buf.flip();
+                    int size;
+                    while ((size = FrameCodec.frameSize(buf)) > 0 && buf.remaining() >= size) {
+                        long now = System.nanoTime();
+                        if (FrameCodec.type(buf) != FrameCodec.TYPE_STATUS && frames < expect) {
+                            latencyNs[frames] = now - FrameCodec.elapsedNs(buf);
+                        }
+                        frames++;
+                        bytes += size;
+                        buf.position(buf.position() + size);
+                    }
+                    buf.compact();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void twoSubscribersReceiveEveryFrame() throws Exception {
+        final int n = 200_000;
+        FrameStreamServer server = new FrameStreamServer(FrameStreamServer.EPHEMERAL_PORT, 1 << 18, TOKEN);
+        try {
+            LoopbackClient a = new LoopbackClient(server.port(), n);
+            LoopbackClient b = new LoopbackClient(server.port(), n);
+            waitFor(server, 2);
+            a.thread.start();
+            b.thread.start();
+
+            FrameCodec.EpochBatch epoch = new FrameCodec.EpochBatch();
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                if (i % 100 == 99) {
+                    for (int sv = 1; sv <= 30; sv++) epoch.add(1, sv, 2.1e7, 2.1e7, 0.1, 0.1);
+                    server.publish(epoch.drain(System.nanoTime()));
+                } else {
+                    server.publish(FrameCodec.vec3(FrameCodec.TYPE_ACCEL, System.nanoTime(), 0.1f, 0.2f, 9.8f));
+                }
+            }
+            a.thread.join(30_000);
+            b.thread.join(30_000);
+            long t1 = System.nanoTime();
+
+            assertEquals(0, server.droppedFrames());
+            assertEquals(n, a.frames);
+            assertEquals(n, b.frames);
+
+            double secs = (t1 - t0) * 1e-9;
+            System.out.println(String.format(Locale.US,
+                    "loopback burst: %d frames x2 in %.2f s = %.0f frames/s, %.1f MB/s per client",
+                    n, secs, n / secs, a.bytes / secs / 1e6));
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void pacedLatency() throws Exception {
+        final int n = 5_000;
+        final long periodNs = 500_000; // 2 kHz, beyond what a phone IMU delivers
+        FrameStreamServer server = new FrameStreamServer(FrameStreamServer.EPHEMERAL_PORT, FrameStreamServer.DEFAULT_QUEUE_FRAMES, TOKEN);
+        try {
+            LoopbackClient a = new LoopbackClient(server.port(), n);
+            waitFor(server, 1);
+            a.thread.start();
+
+            long next = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait); // sleep, don't spin: the NIO thread and client need the CPU too
+                server.publish(FrameCodec.vec3(FrameCodec.TYPE_GYRO, System.nanoTime(), 0.01f, 0.02f, 0.03f));
+                next += periodNs;
+            }
+            a.thread.join(30_000);
+
+            assertEquals(n, a.frames);
+            long[] lat = a.latencyNs.clone();
+            Arrays.sort(lat);
+            System.out.println(String.format(Locale.US, "loopback paced 2 kHz: latency p50 %.1f us, p99 %.1f us, max %.1f us",
+                    lat[n / 2] / 1e3, lat[n * 99 / 100] / 1e3, lat[n - 1] / 1e3));
+            assertTrue("p99 latency should stay well under 50 ms", lat[n * 99 / 100] < 50_000_000L);
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void stalledSubscriberDropsOnlyItsOwnFrames() throws Exception {
+        final int n = 20_000;
+        FrameStreamServer server = new FrameStreamServer(FrameStreamServer.EPHEMERAL_PORT, 64, TOKEN);
+        FrameCodec.EpochBatch epoch = new FrameCodec.EpochBatch();
+        try {
+            LoopbackClient fast = new LoopbackClient(server.port(), n);
+            LoopbackClient stalled = new LoopbackClient(server.port(), n); // never reads
+            waitFor(server, 2);
+            fast.thread.start();
+
+            for (int i = 0; i < n; i++) {
+                // ~1 KB epochs, so the stalled socket's kernel buffer fills and its queue overflows
+                for (int sv = 1; sv <= 40; sv++) epoch.add(1, sv, 2.1e7, 2.1e7, null, null);
+                server.publish(epoch.drain(System.nanoTime()));
+                if (i % 32 == 31) Thread.sleep(0, 200_000); // paced, so the fast one keeps up with a tiny queue
+            }
+            fast.thread.join(30_000);
+
+            assertEquals(n, fast.frames);
+            assertTrue("stalled subscriber should have dropped frames", server.droppedFrames() > 0);
+            System.out.println("stalled subscriber:\n" + server.describe());
+            stalled.ch.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    @Test
+    public void wrongTokenGetsNothing() throws Exception {
+        FrameStreamServer server = new FrameStreamServer(FrameStreamServer.EPHEMERAL_PORT, 64, TOKEN);
+        try {
+            LoopbackClient good = new LoopbackClient(server.port(), 1);
+            LoopbackClient bad = new LoopbackClient(server.port(), 1, FrameStreamServer.newToken());
+            waitFor(server, 1); // only the one with the right token subscribes
+            bad.thread.start();
+            good.thread.start();
+            server.publish(FrameCodec.vec3(FrameCodec.TYPE_GYRO, System.nanoTime(), 0.01f, 0.02f, 0.03f));
+            good.thread.join(10_000);
+            bad.thread.join(10_000); // the server closed it: read() hit EOF
+
+            assertEquals(1, good.frames);
+            assertEquals(0, bad.frames);
+            assertEquals(1, server.subscriberCount());
+        } finally {
+            server.close();
+        }
+    }
+
+    private static void waitFor(FrameStreamServer server, int subs) throws InterruptedException {
+        for (int i = 0; i < 500 && server.subscriberCount() < subs; i++) Thread.sleep(10);
+        assertEquals(subs, server.subscriberCount());
+    }
+}
@@ -0,0 +1,55 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * A satellite moving at 500 m/s with 3 m code noise and mm-level carrier: smoothing must cut the noise,
+ * and a cycle slip (ADR not usable) must restart the filter.
+ */
+public class HatchFilterTest {
+
+    @Test
+    public void smoothsNoiseAndRestartsOnSlip() {
+        HatchFilter hf = new HatchFilter(100);
+        long key = HatchFilter.signalKey(1, 5, 1575.42e6);
+        Random rnd = new Random(1);
+        double range = 2.2e7, adr = 1234.5;
+        double rawErr2 = 0, smoothErr2 = 0;
+        int n = 0;
+
+        for (int e = 0; e < 300; e++) {
+            range += 500.0;
+            adr += 500.0 + rnd.nextGaussian() * 0.003;
+            double pr = range + rnd.nextGaussian() * 3.0;
+            boolean usable = e != 200; // cycle slip at epoch 200
+            double s = hf.update(key, pr, usable, adr);
+            if (e == 200 || e == 201) assertEquals(pr, s, 0.0);
+            if (e == 201) assertEquals(1, hf.lastCount());
+            if (e >= 100 && e < 200) {
+                rawErr2 += (pr - range) * (pr - range);
+                smoothErr2 += (s - range) * (s - range);
+                n++;
+            }
+        }
+        double rawRms = Math.sqrt(rawErr2 / n), smoothRms = Math.sqrt(smoothErr2 / n);
+        assertTrue("smoothed rms " + smoothRms + " vs raw " + rawRms, smoothRms < rawRms / 4);
+        assertEquals(99, hf.lastCount()); // 201 restart → 1, then 98 more epochs
+    }
+
+    @Test
+    public void signalsAreIndependentAndTableGrows() {
+        HatchFilter hf = new HatchFilter(10);
+        for (int sv = 1; sv <= 200; sv++) {
+            hf.update(HatchFilter.signalKey(1, sv, 1575.42e6), 2e7 + sv, true, 0);
+            hf.update(HatchFilter.signalKey(1, sv, 1176.45e6), 2e7 + sv, true, 0);
+        }
+        double s = hf.update(HatchFilter.signalKey(1, 77, 1575.42e6), 2e7 + 77 + 1.0, true, 0.0);
+        assertEquals(2, hf.lastCount());
+        assertEquals(2e7 + 77 + 0.5, s, 1e-6);
+    }
+}
@@ -0,0 +1,56 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Simulated GnssClock: a steady 800 ns/s drift with a little noise, one 1 ms clock-steering jump and one hardware reset.
+ */
+public class ReceiverClockTrackerTest {
+    private static final long FULL_BIAS0 = -1_300_000_000_000_000_000L;
+
+    @Test
+    public void flagsJumpsAndDiscontinuitiesOnly() {
+        ReceiverClockTracker tr = new ReceiverClockTracker();
+        Random rnd = new Random(7);
+        long timeNanos = 5_000_000_000L;
+        double trueBias = 0;
+        int disc = 3;
+        int jumps = 0, breaks = 0, unusable = 0;
+
+        for (int e = 0; e < 600; e++) {
+            timeNanos += 1_000_000_000L;
+            trueBias += 800.0;
+            if (e == 200) trueBias += 1_000_000; // receiver steers its clock by 1 ms
+            if (e == 400) disc++;                // hardware clock reset
+            double measured = trueBias + rnd.nextGaussian() * 5;
+            long full = FULL_BIAS0 + (long) Math.floor(measured);
+            double sub = measured - Math.floor(measured);
+            int f = tr.update(timeNanos, true, full, true, sub, true, 5.0,
+                    true, 800 + rnd.nextGaussian() * 2, true, 2.0, disc);
+
+            if ((f & ReceiverClockTracker.FLAG_BIAS_JUMP) != 0) { jumps++; assertEquals(200, e); }
+            if (ReceiverClockTracker.breaksAdr(f)) { breaks++; assertEquals(400, e); }
+            if (!ReceiverClockTracker.usable(f)) unusable++;
+        }
+        assertEquals(1, jumps);
+        assertEquals(1, breaks);
+        assertEquals(2, unusable);
+        assertEquals(800.0, tr.driftNsPerS(), 5.0);
+        assertTrue(tr.biasSigmaNs() < 10);
+    }
+
+    @Test
+    public void missingFullBiasIsFlaggedAndTimeGoingBackIsADiscontinuity() {
+        ReceiverClockTracker tr = new ReceiverClockTracker();
+        int f = tr.update(1_000_000_000L, false, 0, false, 0, false, 0, false, 0, false, 0, 0);
+        assertTrue((f & ReceiverClockTracker.FLAG_NO_FULL_BIAS) != 0);
+        tr.update(2_000_000_000L, true, FULL_BIAS0, true, 0.5, false, 0, false, 0, false, 0, 0);
+        f = tr.update(1_500_000_000L, true, FULL_BIAS0, true, 0.5, false, 0, false, 0, false, 0, 0);
+        assertTrue(ReceiverClockTracker.breaksAdr(f));
+    }
+}
@@ -0,0 +1,108 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Replays 10 minutes of 100 Hz rows (mostly still, with a few shakes and one baro step) through the policy
+ * and checks that the CSV gets much smaller while every row around an event is still written raw.
+ */
+public class RecordingPolicyReplayTest {
+    private static final long NS = 1_000_000_000L;
+    private static final long STEP = 10_000_000L; // 100 Hz
+    private static final long[] SHAKES = {120 * NS, 300 * NS, 480 * NS}; // 5 s of shaking each
+    private static final long BARO_STEP = 400 * NS;                     // -0.5 hPa (one floor up)
+    private static final int ALL = RecordingPolicy.SOURCE_BARO | RecordingPolicy.SOURCE_ACCEL | RecordingPolicy.SOURCE_GYRO;
+    private static final long GPS0 = 1_440_000_000_000_000_000L;        // GPST − elapsed, for the GpsTimeNs cell
+
+    @Test
+    public void steadyRowsShrinkAndEventsSurvive() {
+        final Set<Long> written = new HashSet<>();
+        final long[] bytes = new long[1];
+        RecordingPolicy policy = new RecordingPolicy((t, b, ax, ay, az, gx, gy, gz) -> {
+            written.add(t);
+            bytes[0] += rowBytes(t, b, ax, ay, az, gx, gy, gz);
+        });
+
+        Random rnd = new Random(42);
+        long rawBytes = 0;
+        for (long t = 0; t < 600 * NS; t += STEP) {
+            boolean shaking = inShake(t);
+            float noise = shaking ? 3f : 0.02f;
+            float ax = (float) (rnd.nextGaussian() * noise);
+            float ay = (float) (rnd.nextGaussian() * noise);
+            float az = (float) (9.81 + rnd.nextGaussian() * noise);
+            float gz = (float) (rnd.nextGaussian() * (shaking ? 1.0 : 0.002));
+            float baro = (float) ((t >= BARO_STEP ? 1012.7 : 1013.2) + rnd.nextGaussian() * 0.01);
+            rawBytes += rowBytes(t, baro, ax, ay, az, 0f, 0f, gz);
+            policy.onRow(ALL, t, baro, ax, ay, az, 0f, 0f, gz);
+        }
+        policy.flush();
+
+        System.out.println(String.format(Locale.US, "rows %d -> %d, bytes %d -> %d (%.1fx), triggers %d",
+                policy.rowsIn(), policy.rowsOut(), rawBytes, bytes[0], (double) rawBytes / bytes[0], policy.triggers()));
+
+        assertTrue("expected at least 5x fewer bytes", bytes[0] * 5 < rawBytes);
+        assertEquals(4, policy.triggers());
+
+        // Every raw row from 2.5 s before each shake until its end must be in the file, untouched
+        for (long start : SHAKES) {
+            for (long t = start - 2_500_000_000L; t < start + 5 * NS; t += STEP) {
+                assertTrue("missing row at " + t, written.contains(t));
+            }
+        }
+        for (long t = BARO_STEP - 2_500_000_000L; t <= BARO_STEP; t += STEP) {
+            assertTrue("missing baro row at " + t, written.contains(t));
+        }
+    }
+
+    // Phone lying still on the stairs: accel and gyro at 100 Hz each in their own rows, baro at 10 Hz. A slow climb
+    // (0.5 hPa over 15 s) must still trigger, no matter how many held baro copies ride along in the IMU rows
+    @Test
+    public void slowStairClimbTriggersAtRealisticRates() {
+        RecordingPolicy policy = new RecordingPolicy((t, b, ax, ay, az, gx, gy, gz) -> {});
+        Random rnd = new Random(7);
+        final long climbStart = 120 * NS, climbNs = 15 * NS;
+        Float baro = null, ax = null, ay = null, az = null, gx = null, gy = null, gz = null;
+        long firstTrigger = -1;
+        for (long t = 0; t < 200 * NS; t += STEP / 2) {
+            int source;
+            if (t % (10 * STEP) == 0) {
+                double climbed = Math.min(1.0, Math.max(0.0, (double) (t - climbStart) / climbNs));
+                baro = (float) (1013.2 - 0.5 * climbed + rnd.nextGaussian() * 0.01);
+                source = RecordingPolicy.SOURCE_BARO;
+            } else if ((t / (STEP / 2)) % 2 == 0) {
+                ax = (float) (rnd.nextGaussian() * 0.02); ay = (float) (rnd.nextGaussian() * 0.02);
+                az = (float) (9.81 + rnd.nextGaussian() * 0.02);
+                source = RecordingPolicy.SOURCE_ACCEL;
+            } else {
+                gx = 0f; gy = 0f; gz = (float) (rnd.nextGaussian() * 0.002);
+                source = RecordingPolicy.SOURCE_GYRO;
+            }
+            policy.onRow(source, t, baro, ax, ay, az, gx, gy, gz);
+            if (firstTrigger < 0 && policy.triggers() > 0) firstTrigger = t;
+        }
+        assertEquals(1, policy.triggers());
+        assertTrue("triggered at " + firstTrigger, firstTrigger > climbStart && firstTrigger <= climbStart + climbNs);
+    }
+
+    private static boolean inShake(long t) {
+        for (long s : SHAKES) if (t >= s && t < s + 5 * NS) return true;
+        return false;
+    }
+
+    // Same cell formatting SheetLogger uses, plus date/time and CRLF
+    private static long rowBytes(long t, Float b, Float ax, Float ay, Float az, Float gx, Float gy, Float gz) {
+        String row = "2025-08-20,12:00:00.000," + t + "," + (GPS0 + t) + "," + CsvFormat.toCsv(b) + "," + CsvFormat.toCsv(ax) + ","
+                + CsvFormat.toCsv(ay) + "," + CsvFormat.toCsv(az) + "," + CsvFormat.toCsv(gx) + ","
+                + CsvFormat.toCsv(gy) + "," + CsvFormat.toCsv(gz) + "\r\n";
+        return row.length();
+    }
+}
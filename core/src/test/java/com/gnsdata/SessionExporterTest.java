@@ -0,0 +1,222 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * SessionExporter: the tar holds exactly the snapshot lengths (not what was appended afterwards), headers are valid
+ * ustar (checksums, sizes, base-256 past 8 GiB), and an export-throughput benchmark against a plain heap-buffered
+ * copy. The benchmark size defaults to a CI-friendly 3 x 64 MB; run multi-GB sessions with
+ * ./gradlew :core:test -Pgnsdata.exportBenchMb=2048 (MB per log file).
+ */
+public class SessionExporterTest {
+    private static final int MB = 1024 * 1024;
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void archiveHoldsTheSnapshotNotWhatCameAfter() throws IOException {
+        File sensors = csv(tmp.newFile(CsvFormat.SENSORS_FILE), 20_000, 1);
+        File gnss = csv(tmp.newFile(CsvFormat.GNSS_FILE), 777, 2); // not a multiple of 512 bytes
+        File empty = tmp.newFile(CsvFormat.CLOCK_FILE);
+        List<SessionExporter.Entry> entries = Arrays.asList(
+                new SessionExporter.Entry(sensors, "session-1/" + sensors.getName(), sensors.length()),
+                new SessionExporter.Entry(gnss, "session-1/" + gnss.getName(), gnss.length()),
+                new SessionExporter.Entry(empty, "session-1/" + empty.getName(), 0));
+        byte[] sensorsAtSnapshot = java.nio.file.Files.readAllBytes(sensors.toPath());
+        try (OutputStream more = new FileOutputStream(sensors, true)) { // logging goes on after the snapshot
+            more.write("late,row\r\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        File archive = new File(tmp.getRoot(), "exports/session-1.tar");
+        SessionExporter.Result r = SessionExporter.writeTar(entries, archive, 1_760_000_000_000L);
+        assertTrue(archive.isFile());
+        assertTrue(!new File(archive.getPath() + ".part").exists());
+        assertEquals(3, r.entries);
+        assertEquals(sensorsAtSnapshot.length + gnss.length(), r.dataBytes);
+        assertEquals(0, archive.length() % 512);
+
+        List<String> names = new ArrayList<>();
+        List<byte[]> bodies = new ArrayList<>();
+        readTar(archive, names, bodies);
+        assertEquals(Arrays.asList("session-1/sensors_log.csv", "session-1/gnss_log.csv", "session-1/clock_log.csv"), names);
+        assertArrayEquals(sensorsAtSnapshot, bodies.get(0));
+        assertArrayEquals(java.nio.file.Files.readAllBytes(gnss.toPath()), bodies.get(1));
+        assertEquals(0, bodies.get(2).length);
+    }
+
+    @Test
+    public void headersAreValidUstar() {
+        byte[] h = SessionExporter.tarHeader("a/b.csv", 12345, 1_760_000_000_000L);
+        assertEquals("ustar", new String(h, 257, 5, StandardCharsets.US_ASCII));
+        assertEquals(12345, parseSize(h));
+        assertEquals(Long.parseLong(new String(h, 148, 6, StandardCharsets.US_ASCII).trim(), 8), checksum(h));
+
+        long big = 12L * 1024 * MB; // 12 GiB: past the 11 octal digits
+        byte[] b = SessionExporter.tarHeader("big.csv", big, 0);
+        assertEquals(0x80, b[124] & 0xFF);
+        assertEquals(big, parseSize(b));
+    }
+
+    @Test
+    public void exportThroughputBenchmark() throws IOException {
+        int mbPerFile = Integer.getInteger("gnsdata.exportBenchMb", 64);
+        File dir = tmp.newFolder("bench");
+        List<SessionExporter.Entry> entries = new ArrayList<>();
+        long total = 0;
+        for (String name : new String[] {CsvFormat.SENSORS_FILE, CsvFormat.GNSS_FILE, CsvFormat.CLOCK_FILE}) {
+            File f = fill(new File(dir, name), (long) mbPerFile * MB + 123);
+            entries.add(new SessionExporter.Entry(f, "session/" + name, f.length()));
+            total += f.length();
+        }
+
+        // Warm-up on a small export (JIT)
+        SessionExporter.writeTar(entries.subList(2, 3), new File(dir, "warm.tar"), 0);
+
+        // Alternate the two ways twice and keep each one's best, so neither always gets the warmer page cache.
+        // CPU time is this thread's user + system time: where the copy pays for moving bytes through the heap
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        File heapTar = new File(dir, "heap.tar");
+        SessionExporter.Result zero = null;
+        double zeroMbps = 0, heapMbps = 0;
+        long zeroCpu = Long.MAX_VALUE, heapCpu = Long.MAX_VALUE, allocated = -1;
+        for (int rep = 0; rep < 2; rep++) {
+            long cpu0 = mx.getCurrentThreadCpuTime(), t0 = System.nanoTime();
+            heapCopyTar(entries, heapTar);
+            heapMbps = Math.max(heapMbps, total / 1e6 / ((System.nanoTime() - t0) / 1e9));
+            heapCpu = Math.min(heapCpu, mx.getCurrentThreadCpuTime() - cpu0);
+
+            long alloc0 = allocatedBytes();
+            cpu0 = mx.getCurrentThreadCpuTime();
+            zero = SessionExporter.writeTar(entries, new File(dir, "zero.tar"), 0);
+            zeroCpu = Math.min(zeroCpu, mx.getCurrentThreadCpuTime() - cpu0);
+            allocated = allocatedBytes() - alloc0;
+            zeroMbps = Math.max(zeroMbps, zero.megabytesPerSecond());
+        }
+
+        System.out.printf("export %.0f MB: transferTo %.0f MB/s, %.0f ms cpu, %d bytes allocated | "
+                        + "heap-buffered copy %.0f MB/s, %.0f ms cpu%n",
+                total / 1e6, zeroMbps, zeroCpu / 1e6, allocated, heapMbps, heapCpu / 1e6);
+        assertEquals(total, zero.dataBytes);
+        assertEquals(heapTar.length(), zero.archive.length());
+        assertEquals(crc(heapTar), crc(zero.archive));
+        // The file bytes never pass through the heap: only headers, padding and bookkeeping are allocated
+        if (allocated >= 0) assertTrue("allocated " + allocated + " bytes", allocated < MB);
+    }
+
+    // HELPERS
+
+    // The same archive the old-fashioned way: every byte read into a heap buffer and written back out
+    private static void heapCopyTar(List<SessionExporter.Entry> entries, File out) throws IOException {
+        byte[] buf = new byte[64 * 1024];
+        try (OutputStream o = new BufferedOutputStream(new FileOutputStream(out), 64 * 1024)) {
+            for (SessionExporter.Entry e : entries) {
+                o.write(SessionExporter.tarHeader(e.name, e.length, 0));
+                try (InputStream in = new FileInputStream(e.file)) {
+                    long left = e.length;
+                    while (left > 0) {
+                        int n = in.read(buf, 0, (int) Math.min(buf.length, left));
+                        o.write(buf, 0, n);
+                        left -= n;
+                    }
+                }
+                o.write(new byte[(int) ((512 - e.length % 512) % 512)]);
+            }
+            o.write(new byte[1024]);
+        }
+    }
+
+    private static void readTar(File archive, List<String> names, List<byte[]> bodies) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(archive))) {
+            byte[] h = new byte[512];
+            while (true) {
+                in.readFully(h);
+                if (h[0] == 0) break; // end-of-archive block
+                assertEquals(Long.parseLong(new String(h, 148, 6, StandardCharsets.US_ASCII).trim(), 8), checksum(h));
+                int len = 0;
+                while (len < 100 && h[len] != 0) len++;
+                names.add(new String(h, 0, len, StandardCharsets.UTF_8));
+                byte[] body = new byte[(int) parseSize(h)];
+                in.readFully(body);
+                bodies.add(body);
+                in.readFully(new byte[(512 - body.length % 512) % 512]);
+            }
+        }
+    }
+
+    private static long parseSize(byte[] h) {
+        if ((h[124] & 0x80) != 0) {
+            long v = 0;
+            for (int i = 1; i < 12; i++) v = (v << 8) | (h[124 + i] & 0xFF);
+            return v;
+        }
+        return Long.parseLong(new String(h, 124, 11, StandardCharsets.US_ASCII), 8);
+    }
+
+    private static long checksum(byte[] h) {
+        long sum = 0;
+        for (int i = 0; i < 512; i++) sum += (i >= 148 && i < 156) ? ' ' : (h[i] & 0xFF);
+        return sum;
+    }
+
+    // A small CSV-looking file
+    private static File csv(File f, int rows, long seed) throws IOException {
+        Random rnd = new Random(seed);
+        try (OutputStream o = new BufferedOutputStream(new FileOutputStream(f))) {
+            for (int r = 0; r < rows; r++) {
+                o.write((r + "," + rnd.nextGaussian() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        return f;
+    }
+
+    // `size` bytes of noise, written in 1 MB blocks
+    private static File fill(File f, long size) throws IOException {
+        byte[] block = new byte[MB];
+        new Random(f.getName().hashCode()).nextBytes(block);
+        try (OutputStream o = new FileOutputStream(f)) {
+            for (long left = size; left > 0; left -= block.length) o.write(block, 0, (int) Math.min(block.length, left));
+        }
+        return f;
+    }
+
+    private static long crc(File f) throws IOException {
+        CRC32 c = new CRC32();
+        byte[] buf = new byte[MB];
+        try (InputStream in = new FileInputStream(f)) {
+            for (int n; (n = in.read(buf)) > 0; ) c.update(buf, 0, n);
+        }
+        return c.getValue();
+    }
+
+    // Bytes allocated by this thread so far, or -1 if the JVM can't tell us
+    private static long allocatedBytes() {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,128 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Welford stays accurate where sum/sum-of-squares falls apart (pseudoranges are ~2e7 m with ~1 m noise),
+ * and merging split pieces in any grouping gives the single-pass answer, including the sensor timing (rate, jitter,
+ * gaps) and the satellite tracking/slip counts that straddle the cuts. The saved state (what the next app run
+ * merges onto) reads back exactly.
+ */
+public class SessionStatsTest {
+
+    @Test
+    public void welfordMatchesTwoPassOnLargeOffsets() {
+        Random rnd = new Random(5);
+        double[] x = new double[100_000];
+        for (int i = 0; i < x.length; i++) x[i] = 2.1e7 + rnd.nextGaussian();
+
+        RunningStats rs = new RunningStats();
+        double sum = 0, sumSq = 0;
+        for (double v : x) { rs.add(v); sum += v; sumSq += v * v; }
+        double mean = sum / x.length, m2 = 0;
+        for (double v : x) m2 += (v - mean) * (v - mean);
+        double twoPassVar = m2 / (x.length - 1);
+        double naiveVar = (sumSq - sum * sum / x.length) / (x.length - 1);
+
+        assertEquals(twoPassVar, rs.variance(), 1e-6);
+        assertEquals(mean, rs.mean(), 1e-6);
+        System.out.printf("variance: two-pass %.6f, Welford %.6f, sum-of-squares %.6f%n", twoPassVar, rs.variance(), naiveVar);
+    }
+
+    @Test
+    public void mergeIsAssociativeAndMatchesSinglePass() throws IOException {
+        Random rnd = new Random(9);
+        SessionStats all = new SessionStats();
+        SessionStats[] parts = {new SessionStats(), new SessionStats(), new SessionStats()};
+        long slips = 0;
+        boolean[] hadTdcp = new boolean[12];
+        for (int e = 0; e < 900; e++) {
+            SessionStats p = parts[e / 300]; // three consecutive pieces, cut between epochs
+            long t0 = e * 1_000_000_000L;
+            boolean paused = e >= 450 && e < 452; // two seconds without sensors: one gap per stream
+            for (int k = 0; k < 20 && !paused; k++) {
+                long t = t0 + k * 50_000_000L + (long) (rnd.nextGaussian() * 1e6); // 20 Hz with 1 ms jitter
+                float ax = (float) rnd.nextGaussian(), gz = (float) (rnd.nextGaussian() * 0.01);
+                all.onAccel(ax, 0f, 9.81f, t); p.onAccel(ax, 0f, 9.81f, t);
+                all.onGyro(0f, 0f, gz, t + 5_000_000L);     p.onGyro(0f, 0f, gz, t + 5_000_000L);
+            }
+            float baro = (float) (1013 + rnd.nextGaussian() * 0.05);
+            if (!paused) { all.onBarometer(baro, t0); p.onBarometer(baro, t0); }
+            int sats = 8 + rnd.nextInt(4);
+            for (int sv = 1; sv <= sats; sv++) {
+                double pr = 2.1e7 + sv * 1000 + rnd.nextGaussian() * 3;
+                Double rate = (rnd.nextDouble() < 0.8) ? Double.valueOf(rnd.nextGaussian() * 500) : null;
+                double smoothed = pr - rnd.nextGaussian();
+                int constellation = (sv % 2 == 0) ? 1 : 6; // GPS / Galileo
+                if (hadTdcp[sv] && rate == null) slips++;
+                hadTdcp[sv] = rate != null;
+                all.onSatellite(constellation, sv, pr, smoothed, rate, t0);
+                p.onSatellite(constellation, sv, pr, smoothed, rate, t0);
+            }
+            all.onEpoch();
+            if (e % 300 != 299) p.onEpoch(); // leave each piece's last epoch open, like a batch segment
+        }
+
+        SessionStats left = copyOf(parts[0]).merge(copyOf(parts[1])).merge(copyOf(parts[2]));
+        SessionStats right = copyOf(parts[0]).merge(copyOf(parts[1]).merge(copyOf(parts[2])));
+        assertSameRows(left.summaryRows(), right.summaryRows());
+        assertSameRows(all.summaryRows(), left.summaryRows());
+        // The first two pieces saved and read back (one app run), then the third merged on (the next run)
+        SessionStats resumed = roundTrip(copyOf(parts[0]).merge(copyOf(parts[1]))).merge(copyOf(parts[2]));
+        assertSameRows(all.summaryRows(), resumed.summaryRows());
+        assertEquals(11, all.satelliteCount());
+        assertTrue(all.snapshot().startsWith("Stats: 11 sats seen"));
+        SessionStats.Sat s = all.satellite(6, 1); // svid 1 is in every epoch
+        assertNotNull(s);
+        assertEquals(900, s.rows);
+        assertEquals(899.0, s.trackedSeconds(), 1e-9);
+
+        long allSlips = 0;
+        for (int c : new int[] {1, 6}) {
+            for (int sv = 1; sv <= 11; sv++) {
+                SessionStats.Sat x = all.satellite(c, sv);
+                if (x != null) allSlips += x.slips;
+            }
+        }
+        assertEquals(slips, allSlips);
+        SessionStats.Timing accel = all.timing(SessionStats.STREAM_ACCEL);
+        assertEquals(898 * 20, accel.samples);
+        assertEquals(1, accel.gaps);
+        assertEquals(1, all.timing(SessionStats.STREAM_BARO).gaps);
+        assertEquals(20.0, accel.rateHz(), 0.1);
+        assertEquals(50.0, accel.intervalMs.mean(), 0.2);
+        assertTrue("jitter " + accel.intervalMs.std(), accel.intervalMs.std() > 1.0); // 1 ms per stamp, plus the gap
+    }
+
+    private static SessionStats copyOf(SessionStats s) { return new SessionStats().merge(s); }
+
+    private static SessionStats roundTrip(SessionStats s) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        s.writeTo(new DataOutputStream(bytes));
+        return SessionStats.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static void assertSameRows(List<Object[]> a, List<Object[]> b) {
+        assertEquals(a.size(), b.size());
+        for (int r = 0; r < a.size(); r++) assertSameRow(a.get(r), b.get(r));
+    }
+
+    private static void assertSameRow(Object[] x, Object[] y) {
+        for (int c = 0; c < x.length; c++) {
+            if (x[c] instanceof Double) assertEquals(String.valueOf(x[3]), (Double) x[c], (Double) y[c], 1e-9 * Math.max(1, Math.abs((Double) x[c])));
+            else assertEquals(String.valueOf(x[3]), x[c], y[c]);
+        }
+    }
+}
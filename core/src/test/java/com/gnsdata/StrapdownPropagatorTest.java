@@ -0,0 +1,143 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Replays synthetic IMU streams (200 Hz, GNSS epochs at 1 Hz) through the strapdown propagator:
+ * attitude from gyro, velocity/position from a rotating body, drift of a still phone, and the cost per sample.
+ */
+public class StrapdownPropagatorTest {
+    private static final long DT_NS = 5_000_000L; // 200 Hz
+
+    @Test
+    public void yawFollowsGyro() {
+        StrapdownPropagator sp = new StrapdownPropagator(false, null);
+        for (int i = 0; i <= 200; i++) sp.onGyro(0f, 0f, (float) (Math.PI / 2), i * DT_NS); // 90°/s for 1 s
+        assertEquals(90.0, sp.yawDeg(), 0.1);
+    }
+
+    @Test
+    public void accelerationInRotatingBodyIntegratesInNavFrame() {
+        // Body spins about z at 1 rad/s while the phone accelerates at 1 m/s² along nav x:
+        // the body sees (cos ωt, -sin ωt, 0), the nav frame must see a straight line
+        StrapdownPropagator sp = new StrapdownPropagator(false, null);
+        sp.setVelocityTauNs(0); // exact kinematics: no velocity decay at the epochs
+        double w = 1.0, sumX = 0, sumY = 0;
+        int n = 4 * 200;
+        for (int i = 0; i <= n; i++) {
+            long t = i * DT_NS;
+            double th = w * t * 1e-9;
+            sp.onGyro(0f, 0f, (float) w, t);
+            sp.onAccel((float) Math.cos(th), (float) -Math.sin(th), 0f, t);
+            if (i > 0 && i % 200 == 0) {
+                sp.onGnssEpoch(t);
+                sumX += sp.epochDx();
+                sumY += sp.epochDy();
+            }
+        }
+        assertEquals(4.0, sp.vx(), 0.01);           // v = a t
+        assertEquals(0.0, sp.vy(), 0.05);
+        assertEquals(8.0, sumX, 0.05);              // x = a t² / 2, summed over the epoch intervals
+        assertEquals(0.0, sumY, 0.1);
+        assertEquals(0.0, sp.px(), 1e-12);          // re-based at the last epoch
+        assertEquals(4, sp.epochs());
+        assertEquals(0, sp.zeroVelocityUpdates()); // spinning and accelerating: never still
+    }
+
+    @Test
+    public void stillTiltedPhoneDriftReplay() {
+        // Raw accelerometer (gravity included) on a phone lying tilted 30° about x and 10° about y,
+        // with 0.02 m/s² and 0.002 rad/s noise: levelling must cancel gravity, what's left is sensor-noise drift
+        StrapdownPropagator sp = new StrapdownPropagator(true, null);
+        double roll = Math.toRadians(30), pitch = Math.toRadians(10), g = StrapdownPropagator.GRAVITY_MPS2;
+        double fx = -g * Math.sin(pitch), fy = g * Math.cos(pitch) * Math.sin(roll), fz = g * Math.cos(pitch) * Math.cos(roll);
+        Random rnd = new Random(3);
+        double worstEpoch = 0;
+        int seconds = 30;
+        for (int i = 0; i <= seconds * 200; i++) {
+            long t = i * DT_NS;
+            sp.onGyro((float) (rnd.nextGaussian() * 0.002), (float) (rnd.nextGaussian() * 0.002),
+                    (float) (rnd.nextGaussian() * 0.002), t);
+            sp.onAccel((float) (fx + rnd.nextGaussian() * 0.02), (float) (fy + rnd.nextGaussian() * 0.02),
+                    (float) (fz + rnd.nextGaussian() * 0.02), t);
+            if (i > 0 && i % 200 == 0) {
+                sp.onGnssEpoch(t);
+                double d = Math.sqrt(sp.epochDx() * sp.epochDx() + sp.epochDy() * sp.epochDy() + sp.epochDz() * sp.epochDz());
+                worstEpoch = Math.max(worstEpoch, d);
+            }
+        }
+        double speed = Math.sqrt(sp.vx() * sp.vx() + sp.vy() * sp.vy() + sp.vz() * sp.vz());
+        System.out.printf("Strapdown still-phone replay: %d s, speed drift %.3f m/s, worst 1 s displacement %.3f m%n",
+                seconds, speed, worstEpoch);
+        // A 1° levelling error alone would leak 0.17 m/s² of gravity, i.e. ~5 m/s after 30 s. Every interval is
+        // still, so each epoch zeroes the velocity and the drift never carries over into the next second
+        assertEquals(seconds, sp.zeroVelocityUpdates());
+        assertTrue("speed drift " + speed, speed < 0.05);
+        assertTrue("epoch displacement " + worstEpoch, worstEpoch < 0.05);
+    }
+
+    @Test
+    public void movingPhoneVelocityDriftStaysBounded() {
+        // A 0.05 m/s² accelerometer bias along body x while the phone turns about x (so it is never "still" and
+        // the bias stays on nav x): undamped that is 6 m/s after 2 minutes, with the decay it levels off near
+        // bias × tau
+        StrapdownPropagator sp = new StrapdownPropagator(false, null);
+        int seconds = 120;
+        for (int i = 0; i <= seconds * 200; i++) {
+            long t = i * DT_NS;
+            sp.onGyro(0.1f, 0f, 0f, t);
+            sp.onAccel(0.05f, 0f, 0f, t);
+            if (i > 0 && i % 200 == 0) sp.onGnssEpoch(t);
+        }
+        double tau = StrapdownPropagator.VELOCITY_TAU_NS * 1e-9;
+        System.out.printf("Strapdown moving-phone bias replay: %d s, vx %.3f m/s (undamped %.1f m/s)%n",
+                seconds, sp.vx(), 0.05 * seconds);
+        assertEquals(0, sp.zeroVelocityUpdates());
+        assertTrue("vx " + sp.vx(), sp.vx() > 0.5 * 0.05 * tau && sp.vx() < 1.2 * 0.05 * tau);
+        assertEquals(0.0, sp.vy(), 1e-9);
+    }
+
+    @Test
+    public void perSampleCostAndNoAllocation() {
+        long[] outputs = new long[1];
+        StrapdownPropagator sp = new StrapdownPropagator(true,
+                (t, px, py, pz, vx, vy, vz, qw, qx, qy, qz) -> outputs[0]++);
+        int n = 2_000_000;
+        run(sp, 0, 200_000); // warm up the JIT
+
+        long allocBefore = allocatedBytes();
+        long t0 = System.nanoTime();
+        run(sp, 200_000, n);
+        long elapsed = System.nanoTime() - t0;
+        long allocated = allocatedBytes() - allocBefore;
+
+        double nsPerSample = (double) elapsed / (2.0 * n); // one gyro + one accel per step
+        System.out.printf("Strapdown: %.1f ns per IMU sample, %d bytes allocated over %d samples%n",
+                nsPerSample, allocated, 2 * n);
+        assertEquals(200_000L + n, outputs[0]);
+        if (allocated >= 0) assertTrue("allocated " + allocated + " bytes", allocated < 64 * 1024);
+    }
+
+    private static void run(StrapdownPropagator sp, int from, int count) {
+        for (int i = from; i < from + count; i++) {
+            long t = i * 1_000_000L; // 1 kHz
+            sp.onGyro(0.01f, -0.02f, 0.03f, t);
+            sp.onAccel(0.1f, 0.2f, 9.8f, t);
+        }
+    }
+
+    // Bytes allocated by this thread so far, or -1 if the JVM can't tell us
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        if (mx instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
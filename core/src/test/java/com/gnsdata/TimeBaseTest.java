@@ -0,0 +1,80 @@
+package com.gnsdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * TimeBase: GNSS time beats the system clock and survives recalibration while fresh, UTC = GPST − leap seconds,
+ * the system clock takes over again when GNSS goes quiet, and the cached row formatter matches SimpleDateFormat.
+ */
+public class TimeBaseTest {
+    private static final long NS = 1_000_000_000L;
+    private static final long GPS_OFFSET = 1_440_000_000L * NS + 123_456_789L; // true GPST − elapsed
+
+    @Test
+    public void gnssRefinesAndSystemClockOnlyFillsIn() {
+        TimeBase tb = new TimeBase();
+        assertFalse(tb.isCalibrated());
+        assertTrue(tb.recalibrationDue(0));
+
+        // System clock first: 3 ms wrong, ms resolution
+        long e0 = 5 * NS;
+        long trueUtcMs = (e0 + GPS_OFFSET) / 1_000_000L + TimeBase.GPS_EPOCH_UNIX_MS - 18_000L;
+        tb.calibrateFromSystem(e0 - 20_000, trueUtcMs + 3, e0 + 20_000);
+        assertTrue(tb.isCalibrated());
+        assertFalse(tb.gnssCalibrated());
+        assertEquals(trueUtcMs + 3, tb.utcMillis(e0));
+        assertEquals(GPS_OFFSET + e0, tb.gpsNanos(e0), 4_000_000L);
+
+        // GNSS epochs with ±100 ns of bias noise: the offset settles within a few tens of ns
+        Random rnd = new Random(3);
+        long e = e0;
+        for (int k = 0; k < 200; k++) {
+            e += NS + rnd.nextInt(1000);
+            tb.refineFromGnss(e, e + GPS_OFFSET + (long) (rnd.nextGaussian() * 100), 18);
+        }
+        assertTrue(tb.gnssCalibrated());
+        assertEquals(GPS_OFFSET + e, tb.gpsNanos(e), 60);
+        assertEquals((e + GPS_OFFSET) / 1_000_000L + TimeBase.GPS_EPOCH_UNIX_MS - 18_000L, tb.utcMillis(e));
+
+        // A system recalibration while GNSS is fresh leaves the GNSS mapping alone
+        long before = tb.gpsNanos(e);
+        tb.calibrateFromSystem(e, trueUtcMs + 500, e);
+        assertEquals(before, tb.gpsNanos(e));
+        assertFalse(tb.recalibrationDue(e + NS));
+        assertTrue(tb.recalibrationDue(e + TimeBase.RECALIBRATE_NS));
+
+        // A clock jump restarts the average instead of dragging it
+        tb.refineFromGnss(e + NS, e + NS + GPS_OFFSET + NS, 18);
+        assertEquals(GPS_OFFSET + NS + e, tb.gpsNanos(e));
+
+        // GNSS quiet for longer than GNSS_STALE_NS: the system clock is back in charge
+        long later = e + TimeBase.GNSS_STALE_NS + NS;
+        tb.calibrateFromSystem(later, 1_700_000_000_000L, later);
+        assertFalse(tb.gnssCalibrated());
+        assertEquals(1_700_000_000_000L, tb.utcMillis(later));
+        assertEquals((1_700_000_000_000L - TimeBase.GPS_EPOCH_UNIX_MS + 18_000L) * 1_000_000L, tb.gpsNanos(later));
+    }
+
+    @Test
+    public void formatterMatchesSimpleDateFormat() {
+        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss.SSS", Locale.US);
+        TimeBase.Formatter f = new TimeBase.Formatter();
+        Random rnd = new Random(11);
+        long ms = 1_755_691_199_000L; // just before a midnight (UTC)
+        for (int i = 0; i < 20_000; i++) {
+            ms += rnd.nextInt(rnd.nextInt(100) == 0 ? 5_000 : 7);
+            assertEquals(date.format(new Date(ms)), f.date(ms));
+            assertEquals(time.format(new Date(ms)), f.time(ms));
+        }
+    }
+}
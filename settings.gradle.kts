@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "GNSData"
 include(":app")
+include(":core")
+include(":batch")
  
\ No newline at end of file